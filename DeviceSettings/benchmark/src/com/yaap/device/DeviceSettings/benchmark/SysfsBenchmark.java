@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.benchmark;
+
+import com.yaap.device.DeviceSettings.Sysfs.NodeCache;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the NodeCache node I/O paths against the stream based implementation
+ * they replaced, on fake nodes under {@link SysfsRoot}.
+ * Run with -prof gc to get the allocation rate of every path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SysfsBenchmark {
+
+    private static final String HBM = "/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/hbm";
+    private static final String READING = "/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/reading";
+
+    private String mHbm;
+    private String mReading;
+    private boolean mToggle;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (System.getProperty(SysfsRoot.PROPERTY) == null) {
+            final Path shm = Paths.get("/dev/shm");
+            final Path root = Files.isDirectory(shm)
+                    ? Files.createTempDirectory(shm, "sysfs")
+                    : Files.createTempDirectory("sysfs");
+            System.setProperty(SysfsRoot.PROPERTY, root.toString());
+        }
+        mHbm = createNode(HBM, "0\n");
+        mReading = createNode(READING, "2\n");
+        // open the cached handles up front, like the first access on device would
+        NodeCache.readLine(mHbm);
+        NodeCache.readLine(mReading);
+    }
+
+    private static String createNode(String node, String content) throws IOException {
+        final Path path = Paths.get(SysfsRoot.resolve(node));
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes());
+        return path.toString();
+    }
+
+    @Benchmark
+    public String readLineLegacy() {
+        return legacyReadLine(mHbm);
+    }
+
+    @Benchmark
+    public String readLine() {
+        return NodeCache.readLine(mHbm);
+    }
+
+    @Benchmark
+    public boolean getFileValueAsBooleanLegacy() {
+        final String value = legacyReadLine(mHbm);
+        return value != null ? !value.equals("0") : false;
+    }
+
+    @Benchmark
+    public boolean readBoolean() {
+        return NodeCache.readBoolean(mHbm, false);
+    }
+
+    @Benchmark
+    public int readIntLegacy() {
+        final String value = legacyReadLine(mReading);
+        return Integer.parseInt(value != null ? value : "0");
+    }
+
+    @Benchmark
+    public int readInt() {
+        return NodeCache.readInt(mReading, 0);
+    }
+
+    @Benchmark
+    public void writeValueLegacy() throws IOException {
+        mToggle = !mToggle;
+        final FileOutputStream fos = new FileOutputStream(mHbm);
+        fos.write((mToggle ? "5" : "0").getBytes());
+        fos.flush();
+        fos.close();
+    }
+
+    @Benchmark
+    public boolean writeValue() {
+        mToggle = !mToggle;
+        return NodeCache.write(mHbm, mToggle ? "5" : "0", true);
+    }
+
+    @Benchmark
+    public boolean writeValueSkipped() {
+        return NodeCache.write(mHbm, "5");
+    }
+
+    @Benchmark
+    public boolean fileWritableLegacy() {
+        final File file = new File(mHbm);
+        return file.exists() && file.canWrite();
+    }
+
+    @Benchmark
+    public boolean fileWritable() {
+        return NodeCache.isKnownWritable(mHbm);
+    }
+
+    /**
+     * Utils.readLine before node handles were cached
+     */
+    private static String legacyReadLine(String filename) {
+        BufferedReader br = null;
+        String line;
+        try {
+            br = new BufferedReader(new FileReader(filename), 1024);
+            line = br.readLine();
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (br != null) {
+                try {
+                    br.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        return line;
+    }
+}
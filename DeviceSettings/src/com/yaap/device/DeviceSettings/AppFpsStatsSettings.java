@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceFragment;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settingslib.collapsingtoolbar.CollapsingToolbarBaseActivity;
+
+import com.yaap.device.DeviceSettings.R;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+public class AppFpsStatsSettings extends CollapsingToolbarBaseActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        if (savedInstanceState == null) {
+            getFragmentManager().beginTransaction()
+                    .replace(R.id.content_frame, new AppFpsStatsFragment())
+                    .commit();
+        }
+    }
+
+    public static class AppFpsStatsFragment extends PreferenceFragment {
+
+        private static final String TAG = "AppFpsStatsSettings";
+
+        @Override
+        public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
+            setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
+            final Context context = getContext().getApplicationContext();
+            // the file is only read here, the overlay service owns the live store
+            CompletableFuture.supplyAsync(() -> {
+                final AppFpsStore store = new AppFpsStore();
+                try {
+                    store.load(AppFpsStore.getFile(context));
+                } catch (IOException e) {
+                    Log.e(TAG, "failed loading per-app FPS", e);
+                }
+                return store;
+            }).thenAcceptAsync(this::populate, context.getMainExecutor());
+        }
+
+        private void populate(AppFpsStore store) {
+            final PreferenceScreen screen = getPreferenceScreen();
+            if (screen == null || getActivity() == null) return;
+            final Context context = getPreferenceManager().getContext();
+            if (store.size() == 0) {
+                final Preference empty = new Preference(context);
+                empty.setTitle(R.string.fps_app_stats_empty);
+                empty.setSelectable(false);
+                screen.addPreference(empty);
+                return;
+            }
+            // most sampled apps first
+            final Integer[] order = new Integer[store.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(store.getCount(b), store.getCount(a)));
+            final PackageManager pm = context.getPackageManager();
+            for (int i : order) {
+                final String pkg = store.getPackage(i);
+                final Preference pref = new Preference(context);
+                pref.setKey(pkg);
+                pref.setTitle(getLabel(pm, pkg));
+                pref.setSummary(context.getString(R.string.fps_app_stats_summary,
+                        store.getMean(i), store.getPercentile(i, 5),
+                        store.getPercentile(i, 50), store.getPercentile(i, 95),
+                        Math.round(store.getBelowRefreshFraction(i) * 100),
+                        store.getCount(i)));
+                pref.setSelectable(false);
+                screen.addPreference(pref);
+            }
+        }
+
+        private static CharSequence getLabel(PackageManager pm, String pkg) {
+            try {
+                final ApplicationInfo info = pm.getApplicationInfo(pkg, 0);
+                return info.loadLabel(pm);
+            } catch (PackageManager.NameNotFoundException e) {
+                return pkg;
+            }
+        }
+    }
+}
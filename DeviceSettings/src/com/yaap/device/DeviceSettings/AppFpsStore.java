@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Per-package FPS aggregates: sample count, mean, a one bucket per fps
+ * histogram for percentiles and the time spent below the refresh rate.
+ * Backed by parallel primitive arrays indexed by package, so adding a
+ * sample is a map lookup and a few array stores.
+ */
+public final class AppFpsStore {
+
+    // the last bucket also holds anything faster
+    public static final int MAX_FPS = 160;
+
+    private static final String FILE_NAME = "fps_apps.bin";
+    private static final int MAGIC = 0x46505341; // "FPSA"
+    private static final int VERSION = 1;
+    // samples below this fraction of the refresh rate count as below it
+    private static final float BELOW_REFRESH_RATIO = 0.95f;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // all guarded by this
+    private final HashMap<String, Integer> mIndex = new HashMap<>();
+    private String[] mPackages = new String[INITIAL_CAPACITY];
+    private long[] mCounts = new long[INITIAL_CAPACITY];
+    private double[] mSums = new double[INITIAL_CAPACITY];
+    private long[] mTotalMs = new long[INITIAL_CAPACITY];
+    private long[] mBelowMs = new long[INITIAL_CAPACITY];
+    private int[][] mHistograms = new int[INITIAL_CAPACITY][];
+    private int mSize;
+    private boolean mDirty;
+
+    public static File getFile(Context context) {
+        return new File(context.createDeviceProtectedStorageContext().getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * @param packageName the foreground package
+     * @param fps the sample
+     * @param refreshRate the refresh rate of the display, 0 if unknown
+     * @param durationMs the time the sample stands for
+     */
+    public synchronized void add(String packageName, float fps, float refreshRate,
+            long durationMs) {
+        final int i = indexOf(packageName);
+        mCounts[i]++;
+        mSums[i] += fps;
+        mHistograms[i][Math.max(0, Math.min(MAX_FPS, Math.round(fps)))]++;
+        mTotalMs[i] += durationMs;
+        if (refreshRate > 0 && fps < refreshRate * BELOW_REFRESH_RATIO) {
+            mBelowMs[i] += durationMs;
+        }
+        mDirty = true;
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized String getPackage(int index) {
+        return mPackages[index];
+    }
+
+    public synchronized long getCount(int index) {
+        return mCounts[index];
+    }
+
+    public synchronized float getMean(int index) {
+        return mCounts[index] == 0 ? 0 : (float) (mSums[index] / mCounts[index]);
+    }
+
+    /**
+     * @param index the package index
+     * @param percentile the percentile, between 0 and 100
+     * @return the fps at that percentile
+     */
+    public synchronized int getPercentile(int index, int percentile) {
+        final long count = mCounts[index];
+        if (count == 0) return 0;
+        final long target = Math.max(1, (count * percentile + 99) / 100);
+        final int[] histogram = mHistograms[index];
+        long seen = 0;
+        for (int fps = 0; fps <= MAX_FPS; fps++) {
+            seen += histogram[fps];
+            if (seen >= target) return fps;
+        }
+        return MAX_FPS;
+    }
+
+    /**
+     * @return the fraction of the time spent below the refresh rate, between 0 and 1
+     */
+    public synchronized float getBelowRefreshFraction(int index) {
+        return mTotalMs[index] == 0 ? 0 : (float) mBelowMs[index] / mTotalMs[index];
+    }
+
+    private int indexOf(String packageName) {
+        final Integer index = mIndex.get(packageName);
+        if (index != null) return index;
+        if (mSize == mPackages.length) grow();
+        final int i = mSize++;
+        mPackages[i] = packageName;
+        mHistograms[i] = new int[MAX_FPS + 1];
+        mIndex.put(packageName, i);
+        return i;
+    }
+
+    private void grow() {
+        final int capacity = mPackages.length * 2;
+        mPackages = Arrays.copyOf(mPackages, capacity);
+        mCounts = Arrays.copyOf(mCounts, capacity);
+        mSums = Arrays.copyOf(mSums, capacity);
+        mTotalMs = Arrays.copyOf(mTotalMs, capacity);
+        mBelowMs = Arrays.copyOf(mBelowMs, capacity);
+        mHistograms = Arrays.copyOf(mHistograms, capacity);
+    }
+
+    /**
+     * Writes the store if it changed since it was last loaded or saved.
+     * The file is replaced atomically.
+     */
+    public synchronized void save(File file) throws IOException {
+        if (!mDirty) return;
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(MAX_FPS);
+            out.writeInt(mSize);
+            for (int i = 0; i < mSize; i++) {
+                out.writeUTF(mPackages[i]);
+                out.writeLong(mCounts[i]);
+                out.writeDouble(mSums[i]);
+                out.writeLong(mTotalMs[i]);
+                out.writeLong(mBelowMs[i]);
+                for (int fps = 0; fps <= MAX_FPS; fps++) out.writeInt(mHistograms[i][fps]);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        mDirty = false;
+    }
+
+    /**
+     * Replaces the content of the store with the saved one, if any
+     */
+    public synchronized void load(File file) throws IOException {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != MAX_FPS) {
+                throw new IOException("Unsupported format");
+            }
+            final int size = in.readInt();
+            mIndex.clear();
+            mSize = 0;
+            for (int n = 0; n < size; n++) {
+                final int i = indexOf(in.readUTF());
+                mCounts[i] = in.readLong();
+                mSums[i] = in.readDouble();
+                mTotalMs[i] = in.readLong();
+                mBelowMs[i] = in.readLong();
+                for (int fps = 0; fps <= MAX_FPS; fps++) mHistograms[i][fps] = in.readInt();
+            }
+        }
+        mDirty = false;
+    }
+
+    public synchronized void dump(PrintWriter pw) {
+        pw.println("Per-app FPS:");
+        if (mSize == 0) pw.println("  none");
+        for (int i = 0; i < mSize; i++) {
+            pw.println("  " + mPackages[i] + ": samples=" + mCounts[i]
+                    + " mean=" + getMean(i)
+                    + " p5=" + getPercentile(i, 5)
+                    + " p50=" + getPercentile(i, 50)
+                    + " p95=" + getPercentile(i, 95)
+                    + " belowRefresh=" + Math.round(getBelowRefreshFraction(i) * 100) + "%");
+        }
+    }
+}
@@ -43,7 +43,9 @@ public class Constants {
     public static final String NOTIF_SLIDER_MIDDLE_KEY = "keycode_middle_position";
     public static final String NOTIF_SLIDER_BOTTOM_KEY = "keycode_bottom_position";
     public static final String NOTIF_SLIDER_MUTE_MEDIA_KEY = "slider_mute_media";
-    private static final String NOTIF_SLIDER_MUTE_MEDIA_LEVEL_KEY = "slider_mute_media_level";
+    static final String NOTIF_SLIDER_MUTE_MEDIA_LEVEL_KEY = "slider_mute_media_level";
+    // window in ms in which slider transitions are merged into one, 0 disables
+    public static final String NOTIF_SLIDER_COALESCE_WINDOW_KEY = "slider_coalesce_window";
 
     // Slider positions
     public static final int POSITION_TOP = 603;
@@ -130,6 +132,11 @@ public class Constants {
                 NOTIF_DIALOG_ENABLED_KEY, 1, UserHandle.USER_CURRENT) == 1;
     }
 
+    public static int getSliderCoalesceWindow(Context context) {
+        return Settings.System.getIntForUser(context.getContentResolver(),
+                NOTIF_SLIDER_COALESCE_WINDOW_KEY, 100, UserHandle.USER_CURRENT);
+    }
+
     public static boolean getIsSliderDozeEnabled(Context context) {
         return Settings.System.getIntForUser(context.getContentResolver(),
                 NOTIF_DIALOG_DOZE_KEY, 1, UserHandle.USER_CURRENT) == 1;
@@ -17,27 +17,23 @@
 */
 package com.yaap.device.DeviceSettings;
 
-import android.content.SharedPreferences;
 import android.graphics.drawable.Icon;
 import android.service.quicksettings.Tile;
 import android.service.quicksettings.TileService;
 
 import com.yaap.device.DeviceSettings.ModeSwitch.DCModeSwitch;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
 
-public class DCModeTileService extends TileService
-        implements SharedPreferences.OnSharedPreferenceChangeListener {
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+public class DCModeTileService extends TileService implements NodeWatcher.Listener {
 
-    private SharedPreferences mPrefs;
     private boolean mEnabled = false;
-    private boolean mInternalStart = false;
 
     @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)  {
-        if (!key.equals(DCModeSwitch.KEY_DC_SWITCH)) return;
-        if (mInternalStart) {
-            mInternalStart = false;
-            return;
-        }
+    public void onNodeChanged(String path, String value) {
+        mEnabled = !value.equals("0");
         refreshState();
     }
 
@@ -59,36 +55,40 @@ public class DCModeTileService extends TileService
     @Override
     public void onStartListening() {
         super.onStartListening();
+        NodeWatcher.getInstance().register(DCModeSwitch.getFile(), getMainExecutor(), this);
+        NodeWatcher.getInstance().refresh(DCModeSwitch.getFile());
         refreshState();
-        mPrefs = Constants.getDESharedPrefs(getApplicationContext());
-        mPrefs.registerOnSharedPreferenceChangeListener(this);
     }
 
     @Override
     public void onStopListening() {
         super.onStopListening();
-        mPrefs.unregisterOnSharedPreferenceChangeListener(this);
-        mPrefs = null;
+        NodeWatcher.getInstance().unregister(this);
     }
 
     @Override
     public void onClick() {
         super.onClick();
-        mInternalStart = true;
-        mEnabled = DCModeSwitch.isCurrentlyEnabled();
-        DCModeSwitch.setEnabled(!mEnabled, this);
-        //getQsTile().setLabel(mEnabled ? "DC off" : "DC On");
-        getQsTile().setIcon(Icon.createWithResource(this,
-                    mEnabled ? R.drawable.ic_dimming_off : R.drawable.ic_dimming_on));
-        getQsTile().setState(mEnabled ? Tile.STATE_INACTIVE : Tile.STATE_ACTIVE);
-        getQsTile().updateTile();
+        mEnabled = !mEnabled;
+        DCModeSwitch.setEnabled(mEnabled, this).thenAcceptAsync(success -> {
+            // reconcile with the node if the write did not go through
+            if (success) return;
+            mEnabled = DCModeSwitch.isCurrentlyEnabled();
+            refreshState();
+        }, getMainExecutor());
+        refreshState();
     }
 
     private void refreshState() {
-        mEnabled = DCModeSwitch.isCurrentlyEnabled();
+        if (getQsTile() == null) return;
         getQsTile().setIcon(Icon.createWithResource(this,
                     mEnabled ? R.drawable.ic_dimming_on : R.drawable.ic_dimming_off));
         getQsTile().setState(mEnabled ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
         getQsTile().updateTile();
     }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SysfsStats.dump(pw);
+    }
 }
@@ -35,6 +35,7 @@ import android.os.Looper;
 import android.os.UserHandle;
 import android.provider.Settings;
 import android.view.MenuItem;
+import android.widget.Toast;
 
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
@@ -47,6 +48,10 @@ import com.yaap.device.DeviceSettings.ModeSwitch.DCModeSwitch;
 import com.yaap.device.DeviceSettings.ModeSwitch.HBMModeSwitch;
 import com.yaap.device.DeviceSettings.ModeSwitch.ReadingModeSwitch;
 
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class DeviceSettings extends PreferenceFragment implements
         Preference.OnPreferenceChangeListener, SharedPreferences.OnSharedPreferenceChangeListener {
 
@@ -56,6 +61,7 @@ public class DeviceSettings extends PreferenceFragment implements
     private static final String KEY_REFRESH_RATE = "refresh_rate";
     private static final String KEY_ALWAYS_CAMERA_DIALOG = "always_on_camera_dialog";
     public static final String KEY_FPS_INFO = "fps_info";
+    private static final String KEY_FPS_RECORD_EXPORT = "fps_record_export";
 
     public static final String KEY_SETTINGS_PREFIX = "device_setting_";
 
@@ -69,6 +75,9 @@ public class DeviceSettings extends PreferenceFragment implements
     private TwoStatePreference mHBMModeSwitch;
     private TwoStatePreference mRefreshRate;
     private SwitchPreferenceCompat mFpsInfo;
+    private SwitchPreferenceCompat mFpsRecord;
+    private SwitchPreferenceCompat mFpsGraph;
+    private ListPreference mFpsInterval;
     private SwitchPreferenceCompat mAlwaysCameraSwitch;
     private SwitchPreferenceCompat mMuteMediaSwitch;
     private SwitchPreferenceCompat mSliderDialogSwitch;
@@ -77,9 +86,6 @@ public class DeviceSettings extends PreferenceFragment implements
     private ListPreference mReadingMode;
 
     private boolean mInternalFpsStart = false;
-    private boolean mInternalHbmStart = false;
-    private boolean mInternalDCStart = false;
-    private boolean mInternalReadingStart = false;
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)  {
@@ -92,34 +98,22 @@ public class DeviceSettings extends PreferenceFragment implements
                 if (mFpsInfo == null) return;
                 mFpsInfo.setChecked(sharedPreferences.getBoolean(key, false));
                 break;
-            case HBMModeSwitch.PREF_KEY_HBM_STATE:
-                if (mInternalHbmStart) {
-                    mInternalHbmStart = false;
-                    return;
-                }
-                if (mHBMModeSwitch == null) return;
-                mHBMModeSwitch.setChecked(sharedPreferences.getBoolean(key, false));
-                break;
-            case DCModeSwitch.KEY_DC_SWITCH:
-                if (mInternalDCStart) {
-                    mInternalDCStart = false;
-                    return;
-                }
-                if (mDCModeSwitch == null) return;
-                mDCModeSwitch.setChecked(sharedPreferences.getBoolean(key, false));
-                break;
-            case ReadingModeSwitch.KEY_READING_SWITCH:
-                if (mInternalReadingStart) {
-                    mInternalReadingStart = false;
-                    return;
-                }
-                if (mReadingMode == null) return;
-                mReadingMode.setValue(String.valueOf(sharedPreferences.getInt(key,
-                        ReadingModeSwitch.STATE_DISABLED)));
-                break;
         }
     }
 
+    private final NodeWatcher.Listener mNodeListener = (path, value) -> {
+        if (path.equals(HBMModeSwitch.getFile())) {
+            if (mHBMModeSwitch == null) return;
+            mHBMModeSwitch.setChecked(!value.equals("0"));
+        } else if (path.equals(DCModeSwitch.getFile())) {
+            if (mDCModeSwitch == null) return;
+            mDCModeSwitch.setChecked(!value.equals("0"));
+        } else if (path.equals(ReadingModeSwitch.getFile())) {
+            if (mReadingMode == null) return;
+            mReadingMode.setValue(String.valueOf(ReadingModeSwitch.parseState(value)));
+        }
+    };
+
     private final ContentObserver mRefreshRateObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
         @Override
@@ -189,6 +183,26 @@ public class DeviceSettings extends PreferenceFragment implements
         mFpsInfo.setChecked(isFPSOverlayRunning());
         mFpsInfo.setOnPreferenceChangeListener(this);
 
+        mFpsInterval = findPreference(FPSInfoService.PREF_KEY_FPS_INTERVAL);
+        mFpsInterval.setValue(Constants.getDESharedPrefs(getContext())
+                .getString(FPSInfoService.PREF_KEY_FPS_INTERVAL, mFpsInterval.getValue()));
+        mFpsInterval.setOnPreferenceChangeListener(this);
+
+        mFpsGraph = findPreference(FPSInfoService.PREF_KEY_FPS_GRAPH);
+        mFpsGraph.setChecked(Constants.getDESharedPrefs(getContext())
+                .getBoolean(FPSInfoService.PREF_KEY_FPS_GRAPH, false));
+        mFpsGraph.setOnPreferenceChangeListener(this);
+
+        mFpsRecord = findPreference(FPSInfoService.PREF_KEY_FPS_RECORD);
+        mFpsRecord.setChecked(Constants.getDESharedPrefs(getContext())
+                .getBoolean(FPSInfoService.PREF_KEY_FPS_RECORD, false));
+        mFpsRecord.setOnPreferenceChangeListener(this);
+
+        findPreference(KEY_FPS_RECORD_EXPORT).setOnPreferenceClickListener(preference -> {
+            exportFpsRecording();
+            return true;
+        });
+
         PreferenceCategory mCameraCategory = findPreference(KEY_CATEGORY_CAMERA);
         boolean hasPopup = Utils.isPackageInstalled(POPUP_HELPER_PKG_NAME, getContext());
         if (hasPopup) {
@@ -208,6 +222,14 @@ public class DeviceSettings extends PreferenceFragment implements
         final SharedPreferences prefs = Constants.getDESharedPrefs(getContext());
         prefs.registerOnSharedPreferenceChangeListener(this);
 
+        final NodeWatcher watcher = NodeWatcher.getInstance();
+        final Executor mainExecutor = getContext().getMainExecutor();
+        watcher.register(DCModeSwitch.getFile(), mainExecutor, mNodeListener);
+        watcher.register(HBMModeSwitch.getFile(), mainExecutor, mNodeListener);
+        if (mReadingMode != null) {
+            watcher.register(ReadingModeSwitch.getFile(), mainExecutor, mNodeListener);
+        }
+
         if (getResources().getBoolean(R.bool.config_deviceHasHighRefreshRate)) {
             getContext().getContentResolver().registerContentObserver(
                     Settings.System.getUriFor(
@@ -219,20 +241,36 @@ public class DeviceSettings extends PreferenceFragment implements
     @Override
     public void onResume() {
         super.onResume();
-        mHBMModeSwitch.setChecked(HBMModeSwitch.isCurrentlyEnabled());
         mFpsInfo.setChecked(isFPSOverlayRunning());
         updateDCScheduleSummary();
+        // the panel driver isn't known to notify every change, re-read the watched nodes
+        final NodeWatcher watcher = NodeWatcher.getInstance();
+        watcher.refresh(DCModeSwitch.getFile());
+        watcher.refresh(HBMModeSwitch.getFile());
+        if (mReadingMode != null) watcher.refresh(ReadingModeSwitch.getFile());
     }
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        final ContentResolver resolver = getContext().getContentResolver();
+        final Context context = getContext();
+        final ContentResolver resolver = context.getContentResolver();
         if (preference == mFpsInfo) {
             mInternalFpsStart = true;
             boolean enabled = (Boolean) newValue;
             Intent fpsinfo = new Intent(getContext(), FPSInfoService.class);
             if (enabled) getContext().startService(fpsinfo);
             else getContext().stopService(fpsinfo);
+        } else if (preference == mFpsInterval) {
+            Constants.getDESharedPrefs(context).edit()
+                    .putString(FPSInfoService.PREF_KEY_FPS_INTERVAL, (String) newValue).apply();
+        } else if (preference == mFpsGraph) {
+            boolean enabled = (Boolean) newValue;
+            Constants.getDESharedPrefs(context).edit()
+                    .putBoolean(FPSInfoService.PREF_KEY_FPS_GRAPH, enabled).apply();
+        } else if (preference == mFpsRecord) {
+            boolean enabled = (Boolean) newValue;
+            Constants.getDESharedPrefs(context).edit()
+                    .putBoolean(FPSInfoService.PREF_KEY_FPS_RECORD, enabled).apply();
         } else if (preference == mAlwaysCameraSwitch) {
             boolean enabled = (Boolean) newValue;
             Settings.System.putInt(resolver,
@@ -242,9 +280,10 @@ public class DeviceSettings extends PreferenceFragment implements
             Boolean enabled = (Boolean) newValue;
             RefreshRateSwitch.setPeakRefresh(getContext(), enabled);
         } else if (preference == mHBMModeSwitch) {
-            mInternalHbmStart = true;
             Boolean enabled = (Boolean) newValue;
-            HBMModeSwitch.setEnabled(enabled, getContext());            
+            HBMModeSwitch.setEnabled(enabled, getContext()).thenAcceptAsync(success -> {
+                if (!success) mHBMModeSwitch.setChecked(HBMModeSwitch.isCurrentlyEnabled());
+            }, context.getMainExecutor());
         } else if (preference == mMuteMediaSwitch) {
             Boolean enabled = (Boolean) newValue;
             Settings.System.putInt(resolver,
@@ -259,13 +298,17 @@ public class DeviceSettings extends PreferenceFragment implements
             Settings.System.putInt(resolver,
                     Constants.NOTIF_DIALOG_DOZE_KEY, enabled ? 1 : 0);
         } else if (preference == mDCModeSwitch) {
-            mInternalDCStart = true;
             Boolean enabled = (Boolean) newValue;
-            DCModeSwitch.setEnabled(enabled, getContext());
+            DCModeSwitch.setEnabled(enabled, getContext()).thenAcceptAsync(success -> {
+                if (!success) mDCModeSwitch.setChecked(DCModeSwitch.isCurrentlyEnabled());
+            }, context.getMainExecutor());
         } else if (preference == mReadingMode) {
-            mInternalReadingStart = true;
             String value = (String) newValue;
-            ReadingModeSwitch.setState(Integer.parseInt(value), getContext());
+            ReadingModeSwitch.setState(Integer.parseInt(value), getContext()).thenAcceptAsync(
+                    success -> {
+                if (!success) mReadingMode.setValue(String.valueOf(
+                        ReadingModeSwitch.getState(context)));
+            }, context.getMainExecutor());
         } else if (newValue instanceof String) {
             Constants.setPreferenceInt(getContext(), preference.getKey(),
                     Integer.parseInt((String) newValue));
@@ -288,6 +331,7 @@ public class DeviceSettings extends PreferenceFragment implements
         super.onDestroy();
         final SharedPreferences prefs = Constants.getDESharedPrefs(getContext());
         prefs.unregisterOnSharedPreferenceChangeListener(this);
+        NodeWatcher.getInstance().unregister(mNodeListener);
         if (getResources().getBoolean(R.bool.config_deviceHasHighRefreshRate)) {
             getContext().getContentResolver().unregisterContentObserver(
                     mRefreshRateObserver);
@@ -299,6 +343,19 @@ public class DeviceSettings extends PreferenceFragment implements
         return prefs.getBoolean(FPSInfoService.PREF_KEY_FPS_STATE, false);
     }
 
+    private void exportFpsRecording() {
+        final Context context = getContext().getApplicationContext();
+        final File out = new File(context.getExternalFilesDir(null),
+                "fps_record_" + System.currentTimeMillis() + ".csv");
+        CompletableFuture.supplyAsync(() -> FPSRecorder.exportCsv(context, out))
+                .thenAcceptAsync(count -> {
+            final String text = count >= 0
+                    ? context.getString(R.string.fps_record_export_done, count, out.getPath())
+                    : context.getString(R.string.fps_record_export_failed);
+            Toast.makeText(context, text, Toast.LENGTH_LONG).show();
+        }, context.getMainExecutor());
+    }
+
     private void updateDCScheduleSummary() {
         if (mDCSchedulePref == null) return;
         int mode = Settings.Secure.getIntForUser(getActivity().getContentResolver(),
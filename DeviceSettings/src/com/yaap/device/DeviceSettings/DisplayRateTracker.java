@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.view.Display;
+
+/**
+ * Caches the current refresh rate of the default display, updated by
+ * display change callbacks rather than queried per use.
+ */
+public final class DisplayRateTracker implements DisplayManager.DisplayListener {
+
+    private final DisplayManager mDisplayManager;
+    private volatile float mRefreshRate;
+    private boolean mStarted;
+
+    public DisplayRateTracker(Context context) {
+        mDisplayManager = context.getSystemService(DisplayManager.class);
+    }
+
+    /**
+     * @param handler the handler to receive display changes on
+     */
+    public void start(Handler handler) {
+        if (mStarted) return;
+        mStarted = true;
+        mDisplayManager.registerDisplayListener(this, handler);
+        update();
+    }
+
+    public void stop() {
+        if (!mStarted) return;
+        mStarted = false;
+        mDisplayManager.unregisterDisplayListener(this);
+    }
+
+    /**
+     * @return the refresh rate of the default display in Hz, 0 if unknown
+     */
+    public float getRefreshRate() {
+        return mRefreshRate;
+    }
+
+    @Override
+    public void onDisplayAdded(int displayId) { }
+
+    @Override
+    public void onDisplayRemoved(int displayId) { }
+
+    @Override
+    public void onDisplayChanged(int displayId) {
+        if (displayId == Display.DEFAULT_DISPLAY) update();
+    }
+
+    private void update() {
+        final Display display = mDisplayManager.getDisplay(Display.DEFAULT_DISPLAY);
+        mRefreshRate = display != null ? display.getRefreshRate() : 0;
+    }
+}
@@ -22,6 +22,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.database.ContentObserver;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -31,50 +32,145 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.Message;
-import android.os.RemoteException;
-import android.os.ServiceManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
-import android.service.dreams.DreamService;
-import android.service.dreams.IDreamManager;
+import android.provider.Settings;
 import android.view.Gravity;
 import android.view.View;
 import android.view.WindowManager;
 import android.util.Log;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import com.yaap.device.DeviceSettings.Sysfs.NodeCache;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.Math;
+import java.util.Arrays;
 
 public class FPSInfoService extends Service {
     public static final String PREF_KEY_FPS_STATE = "fps_running";
-
-    private View mView;
-    private Thread mCurFPSThread;
+    public static final String PREF_KEY_FPS_RECORD = "fps_record";
+    public static final String PREF_KEY_FPS_INTERVAL = "fps_sample_interval";
+    public static final String PREF_KEY_FPS_GRAPH = "fps_graph";
+
+    // interval preference value selecting the adaptive mode
+    private static final int INTERVAL_ADAPTIVE = 0;
+    private static final int DEFAULT_INTERVAL_MS = 1000;
+    private static final int MIN_INTERVAL_MS = 100;
+    private static final int MAX_INTERVAL_MS = 5000;
+    private static final int ADAPTIVE_MIN_INTERVAL_MS = 250;
+    // fps changes smaller than this don't count as a change for the adaptive mode
+    private static final float ADAPTIVE_THRESHOLD_FPS = 1f;
+    // two minutes of samples at the default interval
+    private static final int STATS_WINDOW = 120;
+    private static final float JANK_THRESHOLD_FPS = 30f;
+    private static final byte[] FPS_PREFIX = { 'f', 'p', 's', ':' };
+    // cadence is judged over the last 10 samples, at least 5 of them not idle
+    private static final int CADENCE_WINDOW = 10;
+    private static final int CADENCE_MIN_SAMPLES = 5;
+    private static final float CADENCE_FALLBACK_RATE = 60f;
+    // save the per-app store every this many samples
+    private static final int APP_STORE_SAVE_SAMPLES = 60;
+
+    private FPSView mView;
+    // built on the sampler thread, null until then
+    private volatile HudMetrics mHud;
+    private FPSSampler mSampler;
     private final String TAG = "FPSInfoService";
-    private String mFps = null;
-
-    private static final String MEASURED_FPS = "/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/sde-crtc-0/measured_fps";
-
-    private IDreamManager mDreamManager;
+    private final FPSStats mStats = new FPSStats(STATS_WINDOW, JANK_THRESHOLD_FPS);
+    // only touched on the sampler thread
+    private final byte[] mFpsBuffer = new byte[64];
+    private float mLastFps = Float.NaN;
+    private long mLastSampleUptime;
+    private int mUnsavedSamples;
+    private final ForegroundAppTracker mAppTracker = new ForegroundAppTracker();
+    private final AppFpsStore mAppStore = new AppFpsStore();
+    private DisplayRateTracker mRateTracker;
+    private final RefreshRateMismatchDetector mCadence = new RefreshRateMismatchDetector(
+            CADENCE_WINDOW, CADENCE_MIN_SAMPLES, CADENCE_FALLBACK_RATE);
+    private volatile float mPeakRate;
+    private volatile FPSRecorder mRecorder;
+
+    private static final String MEASURED_FPS =
+            SysfsRoot.resolve("/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/sde-crtc-0/measured_fps");
+
+    private SharedPreferences mPrefs;
+    // main thread only, screen state is tracked from broadcasts instead of queried
+    private boolean mScreenOn = true;
+    private boolean mDreaming;
+    private boolean mSampling;
+    // last value of PREF_KEY_FPS_STATE handed to the prefs, null if unknown
+    private Boolean mSavedState;
 
     private class FPSView extends View {
+        // every line is a 5 char label followed by a right aligned 5 char value
+        private static final int LABEL_LENGTH = 5;
+        private static final int LINE_LENGTH = 10;
+        private static final int LINE_FPS = 0;
+        private static final int LINE_MIN = 1;
+        private static final int LINE_AVG = 2;
+        private static final int LINE_MAX = 3;
+        private static final int LINE_LOW = 4;
+        private static final int LINE_JANK = 5;
+        // refresh rate, followed by '!' when the content doesn't pace evenly on it
+        private static final int LINE_RATE = 6;
+        // followed by one line per HUD metric
+        private static final int LINE_HUD = 7;
+
+        // the graph shows the last GRAPH_SAMPLES samples scaled to 0 - GRAPH_MAX_FPS
+        private static final int GRAPH_SAMPLES = 60;
+        private static final float GRAPH_MAX_FPS = 120f;
+        private static final float[] GRAPH_REFERENCE_FPS = { 60f, 90f };
+
         private final Paint mOnlinePaint;
         private final float mAscent;
+        private final float mLineHeight;
         private final int mMaxWidth;
+        private char[][] mLines;
+        // the HUD shown by the view, main thread only
+        private HudMetrics mViewHud;
 
-        private int mNeededWidth;
+        private final int mNeededWidth;
         private int mNeededHeight;
         private boolean mDataAvail;
 
+        private final Paint mGraphPaint;
+        private final Paint mReferencePaint;
+        private final int mGraphWidth;
+        private final int mGraphHeight;
+        private final int mGraphGap;
+        // ring of the last samples and the reused drawLines buffer, main thread only
+        private final float[] mGraphSamples = new float[GRAPH_SAMPLES];
+        private final float[] mGraphPoints = new float[(GRAPH_SAMPLES - 1) * 4];
+        private int mGraphHead;
+        private int mGraphCount;
+        private boolean mGraphEnabled;
+
         private final Handler mCurFPSHandler = new Handler(Looper.getMainLooper()) {
             public void handleMessage(Message msg) {
-                if (msg.obj == null) return;
                 if (msg.what == 1) {
-                    String msgData = (String) msg.obj;
-                    msgData = msgData.substring(0, Math.min(msgData.length(), 9));
-                    mFps = msgData;
-                    mDataAvail = true;
-                    updateDisplay();
+                    // arg1 is the new sample in tenths of fps
+                    boolean changed = setTenths(LINE_FPS, msg.arg1);
+                    // every sample moves the graph
+                    changed |= addGraphSample(msg.arg1 / 10f);
+                    changed |= setTenths(LINE_MIN, tenths(mStats.getMin()));
+                    changed |= setTenths(LINE_AVG, tenths(mStats.getAverage()));
+                    changed |= setTenths(LINE_MAX, tenths(mStats.getMax()));
+                    changed |= setTenths(LINE_LOW, tenths(mStats.getOnePercentLow()));
+                    changed |= setInt(LINE_JANK, mStats.getJankCount());
+                    changed |= setRate(LINE_RATE,
+                            Math.round(mCadence.getLastRefreshRate()), mCadence.isMismatched());
+                    final HudMetrics hud = mViewHud;
+                    for (int i = 0; hud != null && i < hud.size(); i++) {
+                        changed |= setHudValue(LINE_HUD + i, hud.getKind(i), hud.getValue(i));
+                    }
+                    if (changed || !mDataAvail) {
+                        mDataAvail = true;
+                        invalidate();
+                    }
                 }
             }
         };
@@ -85,6 +181,8 @@ public class FPSInfoService extends Service {
             final int paddingPx = Math.round(5 * density);
             setPadding(paddingPx, paddingPx, paddingPx, paddingPx);
             setBackgroundColor(Color.argb(0x60, 0, 0, 0));
+            // content only changes every sample, keep it cached on the GPU
+            setLayerType(LAYER_TYPE_HARDWARE, null);
 
             final int textSize = Math.round(12 * density);
 
@@ -97,12 +195,73 @@ public class FPSInfoService extends Service {
             mOnlinePaint.setColor(Color.WHITE);
             mOnlinePaint.setShadowLayer(5.0f, 0.0f, 0.0f, Color.BLACK);
 
+            // HUD lines are added once the metrics are discovered
+            mLines = new char[LINE_HUD][];
+            mLines[LINE_FPS] = line("fps:");
+            mLines[LINE_MIN] = line("min:");
+            mLines[LINE_AVG] = line("avg:");
+            mLines[LINE_MAX] = line("max:");
+            mLines[LINE_LOW] = line("1%:");
+            mLines[LINE_JANK] = line("jank:");
+            mLines[LINE_RATE] = line("hz:");
+
+            mGraphPaint = new Paint();
+            mGraphPaint.setAntiAlias(true);
+            mGraphPaint.setStrokeWidth(density);
+            mGraphPaint.setColor(Color.GREEN);
+
+            mReferencePaint = new Paint();
+            mReferencePaint.setStrokeWidth(density / 2);
+            mReferencePaint.setColor(Color.argb(0x80, 0xff, 0xff, 0xff));
+
             mAscent = mOnlinePaint.ascent();
+            mLineHeight = mOnlinePaint.descent() - mAscent;
+
+            // lines have a fixed length, so the size only changes with the graph mode and HUD
+            mMaxWidth = (int) Math.ceil(mOnlinePaint.measureText(mLines[0], 0, LINE_LENGTH));
+            mGraphWidth = Math.max(mMaxWidth, Math.round(GRAPH_SAMPLES * 2 * density));
+            mGraphHeight = Math.round(40 * density);
+            mGraphGap = paddingPx;
+            mNeededWidth = mPaddingLeft + mPaddingRight + mMaxWidth;
+            updateNeededHeight();
+        }
 
-            final String maxWidthStr="fps: 60.1";
-            mMaxWidth = (int) mOnlinePaint.measureText(maxWidthStr);
+        private void updateNeededHeight() {
+            mNeededHeight = mPaddingTop + mPaddingBottom
+                    + (int) Math.ceil(mLines.length * mLineHeight);
+        }
 
-            updateDisplay();
+        void setHud(HudMetrics hud) {
+            mViewHud = hud;
+            mLines = Arrays.copyOf(mLines, LINE_HUD + hud.size());
+            for (int i = 0; i < hud.size(); i++) {
+                mLines[LINE_HUD + i] = line(hud.getLabel(i) + ":");
+            }
+            updateNeededHeight();
+            requestLayout();
+            invalidate();
+        }
+
+        void setGraphEnabled(boolean enabled) {
+            if (mGraphEnabled == enabled) return;
+            mGraphEnabled = enabled;
+            requestLayout();
+            invalidate();
+        }
+
+        void resetGraph() {
+            mGraphHead = 0;
+            mGraphCount = 0;
+        }
+
+        /**
+         * @return whether the graph is shown and has to be redrawn
+         */
+        private boolean addGraphSample(float fps) {
+            mGraphSamples[mGraphHead] = fps;
+            mGraphHead = (mGraphHead + 1) % GRAPH_SAMPLES;
+            if (mGraphCount < GRAPH_SAMPLES) mGraphCount++;
+            return mGraphEnabled;
         }
 
         @Override
@@ -118,12 +277,12 @@ public class FPSInfoService extends Service {
 
         @Override
         protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-            setMeasuredDimension(resolveSize(mNeededWidth, widthMeasureSpec),
-                    resolveSize(mNeededHeight, heightMeasureSpec));
-        }
-
-        private String getFPSInfoString() {
-            return mFps;
+            final int width = mGraphEnabled
+                    ? mPaddingLeft + mPaddingRight + mGraphWidth : mNeededWidth;
+            final int height = mGraphEnabled
+                    ? mNeededHeight + mGraphGap + mGraphHeight : mNeededHeight;
+            setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+                    resolveSize(height, heightMeasureSpec));
         }
 
         @Override
@@ -134,60 +293,127 @@ public class FPSInfoService extends Service {
             }
             final int LEFT = getWidth() - 1;
             final int y = mPaddingTop - (int)mAscent;
-            canvas.drawText(getFPSInfoString(),
-                    LEFT-mPaddingLeft-mMaxWidth,
-                    y - 1, mOnlinePaint);
+            for (int i = 0; i < mLines.length; i++) {
+                canvas.drawText(mLines[i], 0, LINE_LENGTH,
+                        LEFT-mPaddingLeft-mMaxWidth,
+                        y - 1 + i * mLineHeight, mOnlinePaint);
+            }
+            if (mGraphEnabled) drawGraph(canvas);
         }
 
-        void updateDisplay() {
-            if (!mDataAvail) {
-                return;
+        private void drawGraph(Canvas canvas) {
+            final float left = mPaddingLeft;
+            final float right = left + mGraphWidth;
+            final float bottom = mNeededHeight - mPaddingBottom + mGraphGap + mGraphHeight;
+            final float scale = mGraphHeight / GRAPH_MAX_FPS;
+            for (float fps : GRAPH_REFERENCE_FPS) {
+                final float y = bottom - fps * scale;
+                canvas.drawLine(left, y, right, y, mReferencePaint);
             }
-
-            int neededWidth = mPaddingLeft + mPaddingRight + mMaxWidth;
-            int neededHeight = mPaddingTop + mPaddingBottom + 40;
-            if (neededWidth != mNeededWidth || neededHeight != mNeededHeight) {
-                mNeededWidth = neededWidth;
-                mNeededHeight = neededHeight;
-                requestLayout();
-            } else {
-                invalidate();
+            if (mGraphCount < 2) return;
+            // the newest sample is at the right edge, older ones extend to the left
+            final float step = (float) mGraphWidth / (GRAPH_SAMPLES - 1);
+            final int oldest = (mGraphHead - mGraphCount + GRAPH_SAMPLES) % GRAPH_SAMPLES;
+            final float startX = right - (mGraphCount - 1) * step;
+            float prevX = startX;
+            float prevY = bottom - Math.min(mGraphSamples[oldest], GRAPH_MAX_FPS) * scale;
+            int n = 0;
+            for (int i = 1; i < mGraphCount; i++) {
+                final float x = startX + i * step;
+                final float y = bottom - Math.min(
+                        mGraphSamples[(oldest + i) % GRAPH_SAMPLES], GRAPH_MAX_FPS) * scale;
+                mGraphPoints[n++] = prevX;
+                mGraphPoints[n++] = prevY;
+                mGraphPoints[n++] = x;
+                mGraphPoints[n++] = y;
+                prevX = x;
+                prevY = y;
             }
+            canvas.drawLines(mGraphPoints, 0, n, mGraphPaint);
         }
 
         public Handler getHandler(){
             return mCurFPSHandler;
         }
-    }
 
-    protected static class CurFPSThread extends Thread {
-        private boolean mInterrupt = false;
-        private final Handler mHandler;
+        private char[] line(String label) {
+            final char[] line = new char[LINE_LENGTH];
+            Arrays.fill(line, ' ');
+            label.getChars(0, label.length(), line, 0);
+            return line;
+        }
 
-        public CurFPSThread(Handler handler){
-            mHandler=handler;
+        /**
+         * Formats a value given in tenths as "123.4" into the value part of a line
+         * @return whether the line changed
+         */
+        private boolean setTenths(int line, int tenths) {
+            final char[] chars = mLines[line];
+            int pos = LINE_LENGTH - 1;
+            boolean changed = put(chars, pos--, (char) ('0' + tenths % 10));
+            changed |= put(chars, pos--, '.');
+            return fillDigits(chars, pos, tenths / 10) | changed;
         }
 
-        public void interrupt() {
-            mInterrupt = true;
+        /**
+         * Formats an integer into the value part of a line
+         * @return whether the line changed
+         */
+        private boolean setInt(int line, int value) {
+            return fillDigits(mLines[line], LINE_LENGTH - 1, value);
         }
 
-        @Override
-        public void run() {
-            try {
-                while (!mInterrupt) {
-                    sleep(1000);
-                    String fpsVal = FPSInfoService.readOneLine();
-                    mHandler.sendMessage(mHandler.obtainMessage(1, fpsVal));
+        /**
+         * Formats a refresh rate with a trailing mismatch marker into the value part of a line
+         * @return whether the line changed
+         */
+        private boolean setRate(int line, int rate, boolean mismatched) {
+            final char[] chars = mLines[line];
+            final boolean changed = put(chars, LINE_LENGTH - 1, mismatched ? '!' : ' ');
+            return fillDigits(chars, LINE_LENGTH - 2, Math.max(0, rate)) | changed;
+        }
+
+        private boolean setHudValue(int line, int kind, int value) {
+            if (value == HudMetrics.UNKNOWN) {
+                final char[] chars = mLines[line];
+                boolean changed = put(chars, LINE_LENGTH - 1, '-');
+                for (int pos = LINE_LENGTH - 2; pos >= LABEL_LENGTH; pos--) {
+                    changed |= put(chars, pos, ' ');
                 }
-            } catch (InterruptedException ignored) { }
+                return changed;
+            }
+            if (kind == HudMetrics.KIND_TEMP_TENTHS) {
+                return setTenths(line, Math.max(0, Math.min(9999, value)));
+            }
+            return setInt(line, Math.max(0, Math.min(99999, value)));
+        }
+
+        private boolean fillDigits(char[] chars, int pos, int value) {
+            boolean changed = false;
+            do {
+                changed |= put(chars, pos--, (char) ('0' + value % 10));
+                value /= 10;
+            } while (value > 0 && pos >= LABEL_LENGTH);
+            while (pos >= LABEL_LENGTH) changed |= put(chars, pos--, ' ');
+            return changed;
+        }
+
+        private boolean put(char[] chars, int pos, char c) {
+            if (chars[pos] == c) return false;
+            chars[pos] = c;
+            return true;
         }
     }
 
+    private static int tenths(float value) {
+        return Math.max(0, Math.min(9999, Math.round(value * 10)));
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
 
+        mPrefs = Constants.getDESharedPrefs(this);
         mView = new FPSView(this);
         WindowManager.LayoutParams params = new WindowManager.LayoutParams(
             WindowManager.LayoutParams.WRAP_CONTENT,
@@ -200,33 +426,75 @@ public class FPSInfoService extends Service {
         params.verticalMargin = 0.03f;
         params.setTitle("FPS Info");
 
-        startThread();
+        final Handler handler = mView.getHandler();
+        mSampler = new FPSSampler(DEFAULT_INTERVAL_MS, true, () -> {
+            final HudMetrics hud = mHud;
+            if (hud != null) hud.sample();
+            final float fps = readFps();
+            if (Float.isNaN(fps)) return false;
+            mStats.add(fps);
+            addAppSample(fps);
+            mCadence.add(fps, getPanelRate());
+            final FPSRecorder recorder = mRecorder;
+            if (recorder != null) {
+                recorder.append(System.currentTimeMillis(), fps, mAppTracker.getPackage());
+            }
+            handler.sendMessage(handler.obtainMessage(1, tenths(fps), 0));
+            final boolean changed = Float.isNaN(mLastFps)
+                    || Math.abs(fps - mLastFps) >= ADAPTIVE_THRESHOLD_FPS;
+            mLastFps = fps;
+            return changed;
+        });
+        mAppTracker.start();
+        mRateTracker = new DisplayRateTracker(this);
+        mRateTracker.start(handler);
+        // node discovery does blocking I/O, keep it off the main thread
+        final String[] thermalZones = getResources().getStringArray(R.array.config_hudThermalZones);
+        mSampler.post(() -> {
+            final HudMetrics hud = new HudMetrics(thermalZones);
+            mHud = hud;
+            handler.post(() -> {
+                if (mView != null) mView.setHud(hud);
+            });
+        });
+        mSampler.post(this::loadAppStore);
+        getContentResolver().registerContentObserver(
+                Settings.System.getUriFor(Settings.System.PEAK_REFRESH_RATE), false,
+                mPeakRateObserver);
+        updatePeakRate();
+        startSampling();
 
-        mDreamManager = IDreamManager.Stub.asInterface(
-                ServiceManager.checkService(DreamService.DREAM_SERVICE));
         IntentFilter screenStateFilter = new IntentFilter(Intent.ACTION_SCREEN_ON);
         screenStateFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        screenStateFilter.addAction(Intent.ACTION_DREAMING_STARTED);
+        screenStateFilter.addAction(Intent.ACTION_DREAMING_STOPPED);
         registerReceiver(mScreenStateReceiver, screenStateFilter);
 
         WindowManager wm = (WindowManager)getSystemService(WINDOW_SERVICE);
         wm.addView(mView, params);
 
-        // declare service is running
-        final SharedPreferences prefs = Constants.getDESharedPrefs(this);
-        prefs.edit().putBoolean(PREF_KEY_FPS_STATE, true).commit();
+        // service running state was already declared by startSampling()
+        mPrefs.registerOnSharedPreferenceChangeListener(mPrefListener);
+        updateRecording(mPrefs);
+        updateInterval(mPrefs);
+        updateGraph(mPrefs);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        stopThread();
+        stopSampling();
         ((WindowManager)getSystemService(WINDOW_SERVICE)).removeView(mView);
         mView = null;
         unregisterReceiver(mScreenStateReceiver);
 
         // declare service isn't running
-        final SharedPreferences prefs = Constants.getDESharedPrefs(this);
-        prefs.edit().remove(PREF_KEY_FPS_STATE).commit();
+        mPrefs.unregisterOnSharedPreferenceChangeListener(mPrefListener);
+        mPrefs.edit().remove(PREF_KEY_FPS_STATE).apply();
+        mSampler.post(this::stopRecording);
+        mRateTracker.stop();
+        getContentResolver().unregisterContentObserver(mPeakRateObserver);
+        mAppTracker.stop();
     }
 
     @Override
@@ -234,71 +502,241 @@ public class FPSInfoService extends Service {
         return null;
     }
 
-    private static String readOneLine() {
-        BufferedReader br;
-        String line;
-        try {
-            br = new BufferedReader(new FileReader(FPSInfoService.MEASURED_FPS), 512);
-            try {
-                line = br.readLine();
-            } finally {
-                br.close();
+    private float readFps() {
+        return parseFps(mFpsBuffer, NodeCache.read(MEASURED_FPS, mFpsBuffer));
+    }
+
+    /**
+     * Parses the value following "fps:" in the measured_fps node content
+     * @return the value, NaN if not found
+     */
+    private static float parseFps(byte[] buf, int len) {
+        int i = 0;
+        outer:
+        for (; i + FPS_PREFIX.length <= len; i++) {
+            for (int j = 0; j < FPS_PREFIX.length; j++) {
+                if (buf[i + j] != FPS_PREFIX[j]) continue outer;
+            }
+            break;
+        }
+        i += FPS_PREFIX.length;
+        if (i > len) return Float.NaN;
+        while (i < len && buf[i] == ' ') i++;
+        final int start = i;
+        int value = 0;
+        int scale = 1;
+        boolean fraction = false;
+        for (; i < len; i++) {
+            final byte b = buf[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (fraction) scale *= 10;
+                if (scale > 1000) break;
+            } else {
+                break;
             }
-        } catch (Exception e) {
-            return null;
         }
-        return line;
+        if (i == start) return Float.NaN;
+        return (float) value / scale;
     }
 
     private final BroadcastReceiver mScreenStateReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (intent.getAction().equals(Intent.ACTION_SCREEN_ON)) {
-                Log.d(TAG, "ACTION_SCREEN_ON " + isDozeMode());
-                if (!isDozeMode()) {
-                    startThread();
-                    mView.setVisibility(View.VISIBLE);
-                }
-            } else if (intent.getAction().equals(Intent.ACTION_SCREEN_OFF)) {
-                Log.d(TAG, "ACTION_SCREEN_OFF");
-                mView.setVisibility(View.GONE);
-                stopThread();
+            final String action = intent.getAction();
+            Log.d(TAG, action);
+            switch (action) {
+                case Intent.ACTION_SCREEN_ON:
+                    mScreenOn = true;
+                    break;
+                case Intent.ACTION_SCREEN_OFF:
+                    mScreenOn = false;
+                    break;
+                case Intent.ACTION_DREAMING_STARTED:
+                    mDreaming = true;
+                    break;
+                case Intent.ACTION_DREAMING_STOPPED:
+                    mDreaming = false;
+                    break;
+                default:
+                    return;
             }
+            updateSampling();
         }
     };
 
-    private boolean isDozeMode() {
+    /**
+     * Samples only while the screen is on and not dozing, from cached state only
+     */
+    private void updateSampling() {
+        if (mView == null) return;
+        final boolean sample = mScreenOn && !mDreaming;
+        if (sample == mSampling) return;
+        if (sample) {
+            startSampling();
+            mView.setVisibility(View.VISIBLE);
+        } else {
+            mView.setVisibility(View.GONE);
+            stopSampling();
+        }
+    }
+
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPrefListener =
+            (prefs, key) -> {
+        if (PREF_KEY_FPS_RECORD.equals(key)) updateRecording(prefs);
+        else if (PREF_KEY_FPS_INTERVAL.equals(key)) updateInterval(prefs);
+        else if (PREF_KEY_FPS_GRAPH.equals(key)) updateGraph(prefs);
+    };
+
+    private final ContentObserver mPeakRateObserver = new ContentObserver(
+            new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange) {
+            updatePeakRate();
+        }
+    };
+
+    private void updatePeakRate() {
+        final float def = getResources().getInteger(
+                com.android.internal.R.integer.config_defaultPeakRefreshRate);
+        mPeakRate = Settings.System.getFloat(getContentResolver(),
+                Settings.System.PEAK_REFRESH_RATE, def);
+    }
+
+    /**
+     * @return the rate the panel currently refreshes at, the peak rate if unknown
+     */
+    private float getPanelRate() {
+        final float rate = mRateTracker.getRefreshRate();
+        return rate > 0 ? rate : mPeakRate;
+    }
+
+    private void updateGraph(SharedPreferences prefs) {
+        if (mView != null) mView.setGraphEnabled(prefs.getBoolean(PREF_KEY_FPS_GRAPH, false));
+    }
+
+    private void updateInterval(SharedPreferences prefs) {
+        int interval;
         try {
-            if (mDreamManager != null && mDreamManager.isDreaming()) {
-                return true;
-            }
-        } catch (RemoteException e) {
-            return false;
+            interval = Integer.parseInt(prefs.getString(PREF_KEY_FPS_INTERVAL,
+                    String.valueOf(DEFAULT_INTERVAL_MS)));
+        } catch (NumberFormatException e) {
+            interval = DEFAULT_INTERVAL_MS;
         }
-        return false;
+        if (interval == INTERVAL_ADAPTIVE) {
+            mSampler.setInterval(ADAPTIVE_MIN_INTERVAL_MS, MAX_INTERVAL_MS);
+            return;
+        }
+        interval = Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, interval));
+        mSampler.setInterval(interval, interval);
     }
 
-    private void startThread() {
-        Log.d(TAG, "started CurFPSThread");
-        mCurFPSThread = new CurFPSThread(mView.getHandler());
-        mCurFPSThread.start();
-        saveServiceState(true);
+    private void updateRecording(SharedPreferences prefs) {
+        final boolean record = prefs.getBoolean(PREF_KEY_FPS_RECORD, false);
+        // opening maps the recording file, keep it off the main thread
+        mSampler.post(() -> setRecording(record));
     }
 
-    private void stopThread() {
-        if (mCurFPSThread != null && mCurFPSThread.isAlive()) {
-            Log.d(TAG, "stopping CurFPSThread");
-            mCurFPSThread.interrupt();
-            try {
-                mCurFPSThread.join();
-            } catch (InterruptedException ignored) { }
+    /**
+     * Opens or closes the recording, on the sampler thread.
+     * The recorder is only attached once fully opened.
+     */
+    private void setRecording(boolean record) {
+        if (!record) {
+            stopRecording();
+            return;
         }
-        mCurFPSThread = null;
+        if (mRecorder != null) return;
+        final FPSRecorder recorder = FPSRecorder.open(this);
+        if (recorder == null) return;
+        Log.d(TAG, "recording, " + recorder.getCount() + " samples so far");
+        mRecorder = recorder;
+    }
+
+    private void stopRecording() {
+        final FPSRecorder recorder = mRecorder;
+        mRecorder = null;
+        if (recorder != null) recorder.close();
+    }
+
+    /**
+     * Accounts a sample to the foreground app, on the sampler thread.
+     * A sample stands for the time since the previous one, gaps longer than
+     * any interval (sampling was stopped) only count the sample itself.
+     */
+    private void addAppSample(float fps) {
+        final String pkg = mAppTracker.getPackage();
+        final long now = SystemClock.uptimeMillis();
+        final long gap = now - mLastSampleUptime;
+        mLastSampleUptime = now;
+        if (pkg == null) return;
+        mAppStore.add(pkg, fps, mRateTracker.getRefreshRate(),
+                gap <= 2 * MAX_INTERVAL_MS ? gap : 0);
+        if (++mUnsavedSamples >= APP_STORE_SAVE_SAMPLES) saveAppStore();
+    }
+
+    private void loadAppStore() {
+        try {
+            mAppStore.load(AppFpsStore.getFile(this));
+        } catch (IOException e) {
+            Log.e(TAG, "failed loading per-app FPS", e);
+        }
+    }
+
+    private void saveAppStore() {
+        mUnsavedSamples = 0;
+        try {
+            mAppStore.save(AppFpsStore.getFile(this));
+        } catch (IOException e) {
+            Log.e(TAG, "failed saving per-app FPS", e);
+        }
+    }
+
+    private void startSampling() {
+        Log.d(TAG, "started sampling");
+        mSampling = true;
+        mStats.reset();
+        mCadence.reset();
+        mView.resetGraph();
+        mSampler.start();
+        saveServiceState(true);
+    }
+
+    private void stopSampling() {
+        Log.d(TAG, "stopped sampling");
+        mSampling = false;
+        mSampler.stop();
+        mSampler.post(this::saveAppStore);
+        mView.getHandler().removeMessages(1);
         saveServiceState(false);
     }
 
+    /**
+     * Persists the running state asynchronously, skipped when unchanged
+     */
     private void saveServiceState(boolean started) {
-        final SharedPreferences prefs = Constants.getDESharedPrefs(this);
-        prefs.edit().putBoolean(PREF_KEY_FPS_STATE, started).commit();
+        if (mSavedState != null && mSavedState == started) return;
+        mSavedState = started;
+        mPrefs.edit().putBoolean(PREF_KEY_FPS_STATE, started).apply();
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        final FPSRecorder recorder = mRecorder;
+        pw.println("FPS recording: " + (recorder != null
+                ? recorder.getCount() + " samples" : "off"));
+        pw.println("FPS stats: samples=" + mStats.getCount()
+                + " min=" + mStats.getMin()
+                + " avg=" + mStats.getAverage()
+                + " max=" + mStats.getMax()
+                + " 1%low=" + mStats.getOnePercentLow()
+                + " jank=" + mStats.getJankCount());
+        mCadence.dump(pw, mPeakRate);
+        final HudMetrics hud = mHud;
+        if (hud != null) hud.dump(pw);
+        mAppStore.dump(pw);
+        SysfsStats.dump(pw);
     }
 }
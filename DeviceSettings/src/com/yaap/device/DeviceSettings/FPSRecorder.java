@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records FPS samples into a fixed-record ring file in device protected storage.
+ * The file is memory mapped, so appending a sample is a few stores into the
+ * mapping and costs no syscall, and whatever reached the mapping survives the
+ * service (or the whole process) going away.
+ *
+ * Layout: a 32 byte header (magic, version, record size, capacity, total
+ * sample count) followed by capacity records of 64 bytes each (wall clock
+ * time in ms, fps, package name length and up to 51 bytes of package name).
+ */
+public final class FPSRecorder {
+
+    private static final String TAG = "FPSRecorder";
+    private static final String FILE_NAME = "fps_record.bin";
+
+    private static final int MAGIC = 0x46505352; // "FPSR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_RECORD_SIZE = 8;
+    private static final int OFFSET_CAPACITY = 12;
+    private static final int OFFSET_COUNT = 16;
+
+    private static final int RECORD_SIZE = 64;
+    private static final int RECORD_TIME = 0;
+    private static final int RECORD_FPS = 8;
+    private static final int RECORD_PACKAGE_LENGTH = 12;
+    private static final int RECORD_PACKAGE = 13;
+    private static final int MAX_PACKAGE_LENGTH = RECORD_SIZE - RECORD_PACKAGE;
+
+    // a day worth of samples at one per second, ~5.5MB
+    private static final int CAPACITY = 86400;
+
+    private final MappedByteBuffer mBuffer;
+    // all guarded by this
+    private long mCount;
+    private String mPackage;
+    private final byte[] mPackageBytes = new byte[MAX_PACKAGE_LENGTH];
+    private int mPackageLength;
+
+    private FPSRecorder(MappedByteBuffer buffer, long count) {
+        mBuffer = buffer;
+        mCount = count;
+    }
+
+    /**
+     * Maps the record file, resuming the existing recording if it is intact
+     * @param context any context
+     * @return the recorder, null if the file couldn't be mapped
+     */
+    public static FPSRecorder open(Context context) {
+        final File file = getFile(context);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) CAPACITY * RECORD_SIZE);
+            long count = 0;
+            if (isValid(buffer, CAPACITY)) {
+                count = buffer.getLong(OFFSET_COUNT);
+            } else {
+                buffer.putInt(OFFSET_MAGIC, MAGIC);
+                buffer.putInt(OFFSET_VERSION, VERSION);
+                buffer.putInt(OFFSET_RECORD_SIZE, RECORD_SIZE);
+                buffer.putInt(OFFSET_CAPACITY, CAPACITY);
+                buffer.putLong(OFFSET_COUNT, 0);
+            }
+            // the mapping stays valid once the channel is closed
+            return new FPSRecorder(buffer, count);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed mapping " + file, e);
+            return null;
+        }
+    }
+
+    public static File getFile(Context context) {
+        return new File(context.createDeviceProtectedStorageContext().getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest one once the file is full
+     * @param timeMs the wall clock time of the sample
+     * @param fps the sample
+     * @param packageName the foreground package, may be null
+     */
+    public synchronized void append(long timeMs, float fps, String packageName) {
+        if (packageName != mPackage) setPackage(packageName);
+        final int pos = HEADER_SIZE + (int) (mCount % CAPACITY) * RECORD_SIZE;
+        mBuffer.putLong(pos + RECORD_TIME, timeMs);
+        mBuffer.putFloat(pos + RECORD_FPS, fps);
+        mBuffer.put(pos + RECORD_PACKAGE_LENGTH, (byte) mPackageLength);
+        for (int i = 0; i < mPackageLength; i++) {
+            mBuffer.put(pos + RECORD_PACKAGE + i, mPackageBytes[i]);
+        }
+        // published last, so a torn record is never counted
+        mBuffer.putLong(OFFSET_COUNT, ++mCount);
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Flushes the mapping to storage
+     */
+    public synchronized void close() {
+        mBuffer.force();
+    }
+
+    private void setPackage(String packageName) {
+        mPackage = packageName;
+        if (packageName == null) {
+            mPackageLength = 0;
+            return;
+        }
+        final byte[] bytes = packageName.getBytes(StandardCharsets.UTF_8);
+        mPackageLength = Math.min(bytes.length, MAX_PACKAGE_LENGTH);
+        System.arraycopy(bytes, 0, mPackageBytes, 0, mPackageLength);
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int capacity) {
+        return buffer.getInt(OFFSET_MAGIC) == MAGIC
+                && buffer.getInt(OFFSET_VERSION) == VERSION
+                && buffer.getInt(OFFSET_RECORD_SIZE) == RECORD_SIZE
+                && buffer.getInt(OFFSET_CAPACITY) == capacity
+                && buffer.getLong(OFFSET_COUNT) >= 0;
+    }
+
+    /**
+     * Exports the recorded samples, oldest first, as CSV
+     * @param context any context
+     * @param out the file to write to
+     * @return the amount of samples exported, -1 on failure
+     */
+    public static int exportCsv(Context context, File out) {
+        final File file = getFile(context);
+        if (!file.exists()) return 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                BufferedWriter writer = new BufferedWriter(new FileWriter(out))) {
+            if (channel.size() < HEADER_SIZE) return 0;
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.getInt(OFFSET_MAGIC) != MAGIC) return 0;
+            final int capacity = buffer.getInt(OFFSET_CAPACITY);
+            if (!isValid(buffer, capacity)
+                    || channel.size() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                Log.e(TAG, "Corrupted " + file);
+                return -1;
+            }
+            final long count = buffer.getLong(OFFSET_COUNT);
+            final long first = Math.max(0, count - capacity);
+            final byte[] name = new byte[MAX_PACKAGE_LENGTH];
+            writer.write("timestamp_ms,fps,package\n");
+            for (long i = first; i < count; i++) {
+                final int pos = HEADER_SIZE + (int) (i % capacity) * RECORD_SIZE;
+                final int length = Math.min(buffer.get(pos + RECORD_PACKAGE_LENGTH) & 0xff,
+                        MAX_PACKAGE_LENGTH);
+                for (int j = 0; j < length; j++) name[j] = buffer.get(pos + RECORD_PACKAGE + j);
+                writer.write(buffer.getLong(pos + RECORD_TIME) + ","
+                        + buffer.getFloat(pos + RECORD_FPS) + ","
+                        + new String(name, 0, length, StandardCharsets.UTF_8) + "\n");
+            }
+            return (int) (count - first);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed exporting " + file + " to " + out, e);
+            return -1;
+        }
+    }
+}
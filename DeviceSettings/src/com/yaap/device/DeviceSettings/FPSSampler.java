@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * Periodically samples a value on one long-lived background thread.
+ * Ticks are scheduled against absolute uptime, so a slow sample never makes
+ * the following ones drift, and every state change is a message on the
+ * sampler thread, so starting and stopping never block the caller.
+ * In adaptive mode the interval drops to its minimum whenever a sample
+ * changed and doubles up to its maximum while samples are stable.
+ */
+public final class FPSSampler {
+
+    public interface Callback {
+        /**
+         * Called on the sampler thread on every tick
+         * @return whether the sampled value changed, drives the adaptive interval
+         */
+        boolean onTick();
+    }
+
+    private static final int MSG_START = 1;
+    private static final int MSG_STOP = 2;
+    private static final int MSG_TICK = 3;
+    private static final int MSG_SET_INTERVAL = 4;
+
+    private static HandlerThread sThread;
+
+    private final Handler mHandler;
+    private final Callback mCallback;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> onFrame();
+    private final boolean mAlignToVsync;
+
+    // only touched on the sampler thread
+    private long mIntervalMs;
+    private long mMinIntervalMs;
+    private long mMaxIntervalMs;
+    private boolean mRunning;
+    private boolean mFramePending;
+    private long mNextTick;
+    private Choreographer mChoreographer;
+
+    /**
+     * @param intervalMs the time between two ticks
+     * @param alignToVsync whether to run the callback on the first frame after each tick
+     * @param callback the callback
+     */
+    public FPSSampler(long intervalMs, boolean alignToVsync, Callback callback) {
+        mIntervalMs = intervalMs;
+        mMinIntervalMs = intervalMs;
+        mMaxIntervalMs = intervalMs;
+        mAlignToVsync = alignToVsync;
+        mCallback = callback;
+        mHandler = new Handler(getLooper(), this::handleMessage);
+    }
+
+    private static synchronized Looper getLooper() {
+        if (sThread == null) {
+            sThread = new HandlerThread("FPSSampler");
+            sThread.start();
+        }
+        return sThread.getLooper();
+    }
+
+    /**
+     * Starts ticking, a no-op if already started
+     */
+    public void start() {
+        mHandler.sendEmptyMessage(MSG_START);
+    }
+
+    /**
+     * Stops ticking, a tick already running completes but no further one starts
+     */
+    public void stop() {
+        mHandler.removeMessages(MSG_TICK);
+        mHandler.sendEmptyMessage(MSG_STOP);
+    }
+
+    /**
+     * Changes the interval, effective from the next tick
+     * @param minMs the interval, or the minimum interval in adaptive mode
+     * @param maxMs the maximum interval in adaptive mode, minMs for a fixed interval
+     */
+    public void setInterval(int minMs, int maxMs) {
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_SET_INTERVAL, minMs, maxMs));
+    }
+
+    /**
+     * Runs a task on the sampler thread, ordered with the ticks
+     * @param task the task
+     */
+    public void post(Runnable task) {
+        mHandler.post(task);
+    }
+
+    private boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_START:
+                if (mRunning) break;
+                mRunning = true;
+                mIntervalMs = mMinIntervalMs;
+                mNextTick = SystemClock.uptimeMillis() + mIntervalMs;
+                mHandler.sendEmptyMessageAtTime(MSG_TICK, mNextTick);
+                break;
+            case MSG_STOP:
+                mRunning = false;
+                mHandler.removeMessages(MSG_TICK);
+                if (mFramePending) {
+                    mChoreographer.removeFrameCallback(mFrameCallback);
+                    mFramePending = false;
+                }
+                break;
+            case MSG_SET_INTERVAL:
+                mMinIntervalMs = msg.arg1;
+                mMaxIntervalMs = Math.max(msg.arg1, msg.arg2);
+                setCurrentInterval(mMinIntervalMs);
+                break;
+            case MSG_TICK:
+                if (!mRunning) break;
+                scheduleNextTick();
+                if (!mAlignToVsync) {
+                    adapt(mCallback.onTick());
+                } else if (!mFramePending) {
+                    // a missing vsync (e.g. display going off) just skips samples
+                    if (mChoreographer == null) mChoreographer = Choreographer.getInstance();
+                    mChoreographer.postFrameCallback(mFrameCallback);
+                    mFramePending = true;
+                }
+                break;
+        }
+        return true;
+    }
+
+    private void onFrame() {
+        mFramePending = false;
+        if (mRunning) adapt(mCallback.onTick());
+    }
+
+    private void adapt(boolean changed) {
+        if (mMinIntervalMs == mMaxIntervalMs) return;
+        setCurrentInterval(changed
+                ? mMinIntervalMs : Math.min(mIntervalMs * 2, mMaxIntervalMs));
+    }
+
+    private void setCurrentInterval(long intervalMs) {
+        if (intervalMs == mIntervalMs) return;
+        final long previous = mIntervalMs;
+        mIntervalMs = intervalMs;
+        if (!mRunning) return;
+        // the next tick is already scheduled with the previous interval, move it
+        mHandler.removeMessages(MSG_TICK);
+        mNextTick += intervalMs - previous;
+        schedule();
+    }
+
+    private void scheduleNextTick() {
+        mNextTick += mIntervalMs;
+        schedule();
+    }
+
+    private void schedule() {
+        final long now = SystemClock.uptimeMillis();
+        if (mNextTick <= now) {
+            // we fell behind (e.g. deep sleep), skip the missed ticks but stay on the grid
+            mNextTick = now + mIntervalMs - (now - mNextTick) % mIntervalMs;
+        }
+        mHandler.sendEmptyMessageAtTime(MSG_TICK, mNextTick);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+/**
+ * Rolling statistics over the last FPS samples.
+ * Samples live in a primitive ring buffer mirrored by a sorted array that is
+ * updated in place on every sample, so min, max and 1% low are lookups and
+ * nothing is allocated after construction.
+ */
+public final class FPSStats {
+
+    private final float[] mRing;
+    private final float[] mSorted;
+    private final float mJankThreshold;
+    // all guarded by this
+    private int mHead;
+    private int mCount;
+    private double mSum;
+    private int mJankCount;
+
+    /**
+     * @param capacity the amount of samples kept
+     * @param jankThreshold samples below this are counted as jank
+     */
+    public FPSStats(int capacity, float jankThreshold) {
+        mRing = new float[capacity];
+        mSorted = new float[capacity];
+        mJankThreshold = jankThreshold;
+    }
+
+    public synchronized void add(float fps) {
+        if (mCount == mRing.length) {
+            final float evicted = mRing[mHead];
+            removeSorted(evicted);
+            mSum -= evicted;
+            if (evicted < mJankThreshold) mJankCount--;
+        } else {
+            mCount++;
+        }
+        mRing[mHead] = fps;
+        mHead = (mHead + 1) % mRing.length;
+        insertSorted(fps);
+        mSum += fps;
+        if (fps < mJankThreshold) mJankCount++;
+    }
+
+    public synchronized void reset() {
+        mHead = 0;
+        mCount = 0;
+        mSum = 0;
+        mJankCount = 0;
+    }
+
+    public synchronized int getCount() {
+        return mCount;
+    }
+
+    public synchronized float getLast() {
+        if (mCount == 0) return 0;
+        return mRing[(mHead + mRing.length - 1) % mRing.length];
+    }
+
+    public synchronized float getMin() {
+        return mCount == 0 ? 0 : mSorted[0];
+    }
+
+    public synchronized float getMax() {
+        return mCount == 0 ? 0 : mSorted[mCount - 1];
+    }
+
+    public synchronized float getAverage() {
+        return mCount == 0 ? 0 : (float) (mSum / mCount);
+    }
+
+    /**
+     * @return the average of the lowest 1% of the samples (at least one)
+     */
+    public synchronized float getOnePercentLow() {
+        if (mCount == 0) return 0;
+        final int n = (mCount + 99) / 100;
+        float sum = 0;
+        for (int i = 0; i < n; i++) sum += mSorted[i];
+        return sum / n;
+    }
+
+    /**
+     * @return the amount of samples in the window below the jank threshold
+     */
+    public synchronized int getJankCount() {
+        return mJankCount;
+    }
+
+    // mCount already includes the new sample
+    private void insertSorted(float fps) {
+        final int size = mCount - 1;
+        int pos = lowerBound(fps, size);
+        System.arraycopy(mSorted, pos, mSorted, pos + 1, size - pos);
+        mSorted[pos] = fps;
+    }
+
+    // mCount still includes the evicted sample
+    private void removeSorted(float fps) {
+        final int pos = lowerBound(fps, mCount);
+        System.arraycopy(mSorted, pos + 1, mSorted, pos, mCount - pos - 1);
+    }
+
+    private int lowerBound(float fps, int size) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (mSorted[mid] < fps) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.app.ActivityManager;
+import android.app.ActivityTaskManager;
+import android.app.TaskStackListener;
+import android.content.ComponentName;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Keeps track of the package of the top task, pushed by the task stack
+ * instead of queried on every use.
+ */
+public final class ForegroundAppTracker {
+
+    private static final String TAG = "ForegroundAppTracker";
+
+    private final TaskStackListener mListener = new TaskStackListener() {
+        @Override
+        public void onTaskStackChanged() {
+            update();
+        }
+    };
+
+    private volatile String mPackage;
+    private boolean mStarted;
+
+    public synchronized void start() {
+        if (mStarted) return;
+        try {
+            ActivityTaskManager.getService().registerTaskStackListener(mListener);
+            mStarted = true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed registering task stack listener", e);
+        }
+        update();
+    }
+
+    public synchronized void stop() {
+        if (!mStarted) return;
+        try {
+            ActivityTaskManager.getService().unregisterTaskStackListener(mListener);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed unregistering task stack listener", e);
+        }
+        mStarted = false;
+        mPackage = null;
+    }
+
+    /**
+     * @return the package of the top task, null if unknown
+     */
+    public String getPackage() {
+        return mPackage;
+    }
+
+    private void update() {
+        final List<ActivityManager.RunningTaskInfo> tasks =
+                ActivityTaskManager.getInstance().getTasks(1);
+        if (tasks.isEmpty()) return;
+        final ComponentName top = tasks.get(0).topActivity;
+        final String packageName = top != null ? top.getPackageName() : null;
+        // keep the same instance while unchanged, consumers compare by identity
+        if (packageName != null && !packageName.equals(mPackage)) mPackage = packageName;
+    }
+}
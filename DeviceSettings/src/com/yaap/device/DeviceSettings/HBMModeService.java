@@ -25,6 +25,10 @@ import android.content.IntentFilter;
 import android.os.IBinder;
 
 import com.yaap.device.DeviceSettings.ModeSwitch.HBMModeSwitch;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 public class HBMModeService extends Service {
 
@@ -54,4 +58,9 @@ public class HBMModeService extends Service {
         unregisterReceiver(mReceiver);
         super.onDestroy();
     }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SysfsStats.dump(pw);
+    }
 }
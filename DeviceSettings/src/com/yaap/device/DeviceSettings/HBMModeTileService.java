@@ -18,26 +18,23 @@
 package com.yaap.device.DeviceSettings;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.service.quicksettings.Tile;
 import android.service.quicksettings.TileService;
 
 import com.yaap.device.DeviceSettings.ModeSwitch.HBMModeSwitch;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
 
-public class HBMModeTileService extends TileService
-        implements SharedPreferences.OnSharedPreferenceChangeListener {
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+public class HBMModeTileService extends TileService implements NodeWatcher.Listener {
 
-    private SharedPreferences mPrefs;
     private Intent mHbmIntent;
-    private boolean mInternalStart = false;
+    private boolean mEnabled = false;
 
     @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)  {
-        if (!key.equals(HBMModeSwitch.PREF_KEY_HBM_STATE)) return;
-        if (mInternalStart) {
-            mInternalStart = false;
-            return;
-        }
+    public void onNodeChanged(String path, String value) {
+        mEnabled = !value.equals("0");
         updateState();
     }
 
@@ -60,31 +57,34 @@ public class HBMModeTileService extends TileService
     @Override
     public void onStartListening() {
         super.onStartListening();
+        NodeWatcher.getInstance().register(HBMModeSwitch.getFile(), getMainExecutor(), this);
+        NodeWatcher.getInstance().refresh(HBMModeSwitch.getFile());
         updateState();
-        mPrefs = Constants.getDESharedPrefs(getApplicationContext());
-        mPrefs.registerOnSharedPreferenceChangeListener(this);
     }
 
     @Override
     public void onStopListening() {
         super.onStopListening();
-        mPrefs.unregisterOnSharedPreferenceChangeListener(this);
-        mPrefs = null;
+        NodeWatcher.getInstance().unregister(this);
     }
 
     @Override
     public void onClick() {
         super.onClick();
-        mInternalStart = true;
-        boolean enabled = HBMModeSwitch.isCurrentlyEnabled();
-        HBMModeSwitch.setEnabled(!enabled, this);
+        mEnabled = !mEnabled;
+        HBMModeSwitch.setEnabled(mEnabled, this).thenAcceptAsync(success -> {
+            // reconcile with the node if the write did not go through
+            if (success) return;
+            mEnabled = HBMModeSwitch.isCurrentlyEnabled();
+            updateState();
+        }, getMainExecutor());
         updateState();
     }
 
     private void updateState() {
-        boolean enabled = HBMModeSwitch.isCurrentlyEnabled();
-        if (!enabled) tryStopService();
-        getQsTile().setState(enabled ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        if (getQsTile() == null) return;
+        if (!mEnabled) tryStopService();
+        getQsTile().setState(mEnabled ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
         getQsTile().updateTile();
     }
 
@@ -93,4 +93,9 @@ public class HBMModeTileService extends TileService
         this.stopService(mHbmIntent);
         mHbmIntent = null;
     }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SysfsStats.dump(pw);
+    }
 }
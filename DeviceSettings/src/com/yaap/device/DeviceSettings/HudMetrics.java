@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import com.yaap.device.DeviceSettings.Sysfs.NodeCache;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The performance counters shown next to the FPS: current frequency of every
+ * cpufreq policy (cluster), GPU load and a configurable set of thermal zones.
+ * Nodes are discovered once, then every sample is a single pass of
+ * positional reads over the fds cached by {@link NodeCache}.
+ */
+public final class HudMetrics {
+
+    public static final int KIND_FREQ_MHZ = 0;
+    public static final int KIND_PERCENT = 1;
+    public static final int KIND_TEMP_TENTHS = 2;
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final String CPUFREQ_DIR =
+            SysfsRoot.resolve("/sys/devices/system/cpu/cpufreq");
+    private static final String GPU_BUSY =
+            SysfsRoot.resolve("/sys/class/kgsl/kgsl-3d0/gpu_busy_percentage");
+    private static final String THERMAL_DIR = SysfsRoot.resolve("/sys/class/thermal");
+    private static final int MAX_LABEL_LENGTH = 4;
+
+    private final String[] mLabels;
+    private final String[] mPaths;
+    private final int[] mKinds;
+    // raw node values, guarded by this
+    private final int[] mRaw;
+
+    /**
+     * Discovers the nodes, does blocking I/O
+     * @param thermalZones the thermal zones to show, as label:type pairs
+     */
+    public HudMetrics(String[] thermalZones) {
+        final ArrayList<String> labels = new ArrayList<>();
+        final ArrayList<String> paths = new ArrayList<>();
+        final ArrayList<Integer> kinds = new ArrayList<>();
+
+        final File[] policies = new File(CPUFREQ_DIR).listFiles(
+                f -> f.getName().startsWith("policy"));
+        if (policies != null) {
+            // policyN is named after the first cpu of the cluster
+            Arrays.sort(policies, (a, b) -> Integer.compare(policyCpu(a), policyCpu(b)));
+            for (File policy : policies) {
+                final File freq = new File(policy, "scaling_cur_freq");
+                if (!freq.canRead()) continue;
+                labels.add("c" + policyCpu(policy));
+                paths.add(freq.getPath());
+                kinds.add(KIND_FREQ_MHZ);
+            }
+        }
+
+        if (new File(GPU_BUSY).canRead()) {
+            labels.add("gpu%");
+            paths.add(GPU_BUSY);
+            kinds.add(KIND_PERCENT);
+        }
+
+        final HashMap<String, File> zonesByType = new HashMap<>();
+        final File[] zones = thermalZones.length == 0 ? null : new File(THERMAL_DIR).listFiles(
+                f -> f.getName().startsWith("thermal_zone"));
+        if (zones != null) {
+            for (File zone : zones) {
+                final String typePath = new File(zone, "type").getPath();
+                final String type = NodeCache.readLine(typePath);
+                // only read once, don't keep the fd around
+                NodeCache.evict(typePath);
+                if (type != null) zonesByType.putIfAbsent(type, zone);
+            }
+        }
+        for (String entry : thermalZones) {
+            final int sep = entry.indexOf(':');
+            if (sep <= 0) continue;
+            final File zone = zonesByType.get(entry.substring(sep + 1));
+            if (zone == null) continue;
+            final String label = entry.substring(0, sep);
+            labels.add(label.length() > MAX_LABEL_LENGTH
+                    ? label.substring(0, MAX_LABEL_LENGTH) : label);
+            paths.add(new File(zone, "temp").getPath());
+            kinds.add(KIND_TEMP_TENTHS);
+        }
+
+        mLabels = labels.toArray(new String[0]);
+        mPaths = paths.toArray(new String[0]);
+        mKinds = new int[kinds.size()];
+        for (int i = 0; i < mKinds.length; i++) mKinds[i] = kinds.get(i);
+        mRaw = new int[mPaths.length];
+        Arrays.fill(mRaw, UNKNOWN);
+    }
+
+    private static int policyCpu(File policy) {
+        try {
+            return Integer.parseInt(policy.getName().substring("policy".length()));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    public int size() {
+        return mPaths.length;
+    }
+
+    public String getLabel(int index) {
+        return mLabels[index];
+    }
+
+    public int getKind(int index) {
+        return mKinds[index];
+    }
+
+    /**
+     * Reads every node, call on the sampler thread
+     */
+    public synchronized void sample() {
+        for (int i = 0; i < mPaths.length; i++) {
+            mRaw[i] = NodeCache.readInt(mPaths[i], UNKNOWN);
+        }
+    }
+
+    /**
+     * @param index the metric
+     * @return the value in the unit of its kind, UNKNOWN if the node can't be read
+     */
+    public synchronized int getValue(int index) {
+        final int raw = mRaw[index];
+        if (raw == UNKNOWN) return UNKNOWN;
+        switch (mKinds[index]) {
+            case KIND_FREQ_MHZ:
+                // scaling_cur_freq is in kHz
+                return raw / 1000;
+            case KIND_TEMP_TENTHS:
+                // thermal zones report millidegrees
+                return raw / 100;
+            default:
+                return raw;
+        }
+    }
+
+    public void dump(PrintWriter pw) {
+        pw.println("HUD metrics:");
+        if (mPaths.length == 0) pw.println("  none");
+        for (int i = 0; i < mPaths.length; i++) {
+            pw.println("  " + mLabels[i] + " " + mPaths[i] + " = " + getValue(i));
+        }
+    }
+}
@@ -20,21 +20,34 @@ import android.app.NotificationManager;
 import android.content.Context;
 import android.content.Intent;
 import android.media.AudioManager;
+import android.os.Binder;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.ServiceManager;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.os.VibrationEffect;
 import android.os.VibratorManager;
 import android.os.Vibrator;
 import android.provider.Settings;
+import android.util.Log;
 import android.util.SparseIntArray;
 import android.view.KeyEvent;
 
 import com.android.internal.os.DeviceKeyHandler;
+import com.android.internal.util.DumpUtils;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 public class KeyHandler implements DeviceKeyHandler {
 
     private static final String TAG = KeyHandler.class.getSimpleName();
 
+    // dumpsys service exposing the latency stats
+    private static final String DUMP_SERVICE = "alert_slider";
+    private static final String TRACE_TRANSITION = "AlertSlider transition";
+
     private static final SparseIntArray sSupportedSliderZenModes = new SparseIntArray();
     private static final SparseIntArray sSupportedSliderRingModes = new SparseIntArray();
     private static final SparseIntArray sSupportedSliderHaptics = new SparseIntArray();
@@ -63,9 +76,26 @@ public class KeyHandler implements DeviceKeyHandler {
     private final AudioManager mAudioManager;
     private final HandlerThread mHandlerThread = new HandlerThread("KeyHandlerThread");
     private final Handler mHandler;
-    private boolean mNeedsRun;
+    private final SliderConfig.Tracker mConfigTracker;
+    private final SliderReconciler mReconciler;
+    private final SliderLatencyStats mLatency = new SliderLatencyStats();
+    // only touched on the input dispatch thread
+    private int mTraceCookie;
     private Vibrator mVibrator;
+    // only touched on KeyHandlerThread
     private int mPrevKeyCode = 0;
+    // latest transition held back while the coalescing window is open
+    private SliderCommand mPendingCommand;
+    private boolean mWindowOpen;
+    // the applied command whose ringer / zen mode is not confirmed yet
+    private SliderCommand mConfirmingCommand;
+    private final Runnable mCloseWindow = () -> {
+        final SliderCommand command = mPendingCommand;
+        mPendingCommand = null;
+        mWindowOpen = false;
+        // whatever came in meanwhile is applied and absorbs the next transitions in turn
+        if (command != null) applyAndOpenWindow(command);
+    };
 
     public KeyHandler(Context context) {
         mContext = context;
@@ -80,26 +110,40 @@ public class KeyHandler implements DeviceKeyHandler {
 
         mHandlerThread.start();
         mHandler = new Handler(mHandlerThread.getLooper());
+        // own handler, so clearing slider callbacks never drops a pending reload
+        mConfigTracker = new SliderConfig.Tracker(context,
+                new Handler(mHandlerThread.getLooper()));
+        mConfigTracker.start();
+        mReconciler = new SliderReconciler(context, mHandler, mAudioManager,
+                mNotificationManager);
+        mHandler.post(this::publishDumpService);
     }
 
-    private boolean hasSetupCompleted() {
-        return Settings.Secure.getInt(mContext.getContentResolver(),
-                Settings.Secure.USER_SETUP_COMPLETE, 0) != 0;
+    private void publishDumpService() {
+        try {
+            ServiceManager.addService(DUMP_SERVICE, new Binder() {
+                @Override
+                protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+                    if (!DumpUtils.checkDumpPermission(mContext, TAG, pw)) return;
+                    mLatency.dump(pw);
+                }
+            });
+        } catch (SecurityException e) {
+            Log.w(TAG, "failed publishing " + DUMP_SERVICE, e);
+        }
     }
 
     @Override
     public KeyEvent handleKeyEvent(KeyEvent event) {
         final int scanCode = event.getScanCode();
-        final String keyCode = Constants.sKeyMap.get(scanCode);
-        int keyCodeValue;
-
-        try {
-            keyCodeValue = Constants.getPreferenceInt(mContext, keyCode);
-        } catch (Exception e) {
+        // settings come from an observer maintained snapshot, no provider IPC in here
+        final SliderConfig config = mConfigTracker.get();
+        final int keyCodeValue = config.getValue(scanCode);
+        if (keyCodeValue == SliderConfig.VALUE_UNKNOWN) {
             return event;
         }
 
-        if (!hasSetupCompleted()) {
+        if (!config.setupCompleted) {
             return event;
         }
 
@@ -108,54 +152,122 @@ public class KeyHandler implements DeviceKeyHandler {
             return event;
         }
 
-        mNeedsRun = false;
-        mHandler.removeCallbacksAndMessages(null);
+        // consume right away, the side effects run in order on KeyHandlerThread
+        final long now = SystemClock.uptimeMillis();
+        mLatency.record(SliderLatencyStats.STAGE_DISPATCH, now - event.getEventTime());
+        final SliderCommand command = new SliderCommand(scanCode, keyCodeValue, config,
+                event.getEventTime(), now, ++mTraceCookie);
+        Trace.asyncTraceBegin(Trace.TRACE_TAG_INPUT, TRACE_TRANSITION, command.traceCookie);
+        mHandler.post(() -> enqueueCommand(command));
+        return null;
+    }
+
+    /**
+     * Coalesces the transitions of one slider gesture, on KeyHandlerThread only.
+     * The first transition is applied right away and opens a window, later
+     * ones within it replace each other, so only the net transition from the
+     * last applied state (mPrevKeyCode) to the last position is applied when
+     * the window closes.
+     */
+    private void enqueueCommand(SliderCommand command) {
+        if (!mWindowOpen) {
+            applyAndOpenWindow(command);
+            return;
+        }
+        final SliderCommand replaced = mPendingCommand;
+        mPendingCommand = command;
+        if (replaced != null) {
+            mLatency.recordCoalesced();
+            Trace.asyncTraceEnd(Trace.TRACE_TAG_INPUT, TRACE_TRANSITION, replaced.traceCookie);
+        }
+    }
+
+    private void applyAndOpenWindow(SliderCommand command) {
+        applyCommand(command);
+        final int window = command.config.coalesceWindowMs;
+        if (window <= 0) return;
+        mWindowOpen = true;
+        mHandler.postDelayed(mCloseWindow, window);
+    }
+
+    /**
+     * Applies a slider transition, on KeyHandlerThread only
+     */
+    private void applyCommand(SliderCommand command) {
+        final int keyCodeValue = command.value;
+        final long start = SystemClock.uptimeMillis();
+        mLatency.record(SliderLatencyStats.STAGE_QUEUE, start - command.dispatchTime);
+        Trace.traceBegin(Trace.TRACE_TAG_INPUT, "AlertSlider apply");
+        // a newer transition supersedes any pending reconciliation
+        mReconciler.cancel();
+        if (mConfirmingCommand != null) {
+            Trace.asyncTraceEnd(Trace.TRACE_TAG_INPUT, TRACE_TRANSITION,
+                    mConfirmingCommand.traceCookie);
+        }
+        mConfirmingCommand = command;
 
         if (mPrevKeyCode == Constants.KEY_VALUE_TOTAL_SILENCE && keyCodeValue != mPrevKeyCode) {
             // if previous was total silence we need to vibrate after setRingerModeInternal
             // for it to actually fire.
             // we also have to exit it before setRingerModeInternal because it sets it internally
             final int targetMode = sSupportedSliderRingModes.get(keyCodeValue);
-            mNotificationManager.setZenMode(sSupportedSliderZenModes.get(keyCodeValue), null, TAG);
+            final int targetZen = sSupportedSliderZenModes.get(keyCodeValue);
+            mNotificationManager.setZenMode(targetZen, null, TAG);
             mAudioManager.setRingerModeInternal(targetMode);
             doHapticFeedback(sSupportedSliderHaptics.get(keyCodeValue));
-            // make sure ringer mode was set correctly (race condition because setZenMode is async)
-            mNeedsRun = true;
-            mHandler.postDelayed(() -> {
-                if (mAudioManager.getRingerModeInternal() != targetMode && mNeedsRun) {
-                    mAudioManager.setRingerModeInternal(targetMode);
-                }
-            }, 200); // 200ms is long enough even if the system is very busy
+            // make sure ringer mode ends up set correctly (race condition because setZenMode
+            // is async), re-applied as the system reports ringer / zen changes
+            mReconciler.reconcile(targetMode, targetZen, true,
+                    confirmed -> onConfirmed(command, confirmed));
         } else {
             // here we have to vibrate before setting anything else.
             // also setRingerModeInternal before setZenMode because it could set the ringer mode
             doHapticFeedback(sSupportedSliderHaptics.get(keyCodeValue));
             mAudioManager.setRingerModeInternal(sSupportedSliderRingModes.get(keyCodeValue));
-            mNotificationManager.setZenMode(sSupportedSliderZenModes.get(keyCodeValue), null, TAG);
+            final int targetZen = sSupportedSliderZenModes.get(keyCodeValue);
+            mNotificationManager.setZenMode(targetZen, null, TAG);
+            // the ringer mode is set synchronously, only wait for the zen mode
+            mReconciler.reconcile(sSupportedSliderRingModes.get(keyCodeValue), targetZen, false,
+                    confirmed -> onConfirmed(command, confirmed));
         }
 
-        if (Constants.getIsMuteMediaEnabled(mContext)) {
+        if (command.config.muteMediaEnabled) {
             final int max = mAudioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
             final int curr = mAudioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
             if (keyCodeValue == Constants.KEY_VALUE_SILENT) {
                 // going into silent:
                 // saving current media volume and setting to 0
-                Constants.setLastMediaLevel(mContext, Math.round((float)curr * 100f / (float)max));
+                final int level = Math.round((float)curr * 100f / (float)max);
+                Constants.setLastMediaLevel(mContext, level);
+                mConfigTracker.setLastMediaLevel(level);
                 mAudioManager.setStreamVolume(AudioManager.STREAM_MUSIC,
                         0, AudioManager.FLAG_SHOW_UI);
             } else if (mPrevKeyCode == Constants.KEY_VALUE_SILENT && curr == 0) {
                 // going out of silent:
                 // setting media volume back if and only if current volume is still 0
-                final int last = Constants.getLastMediaLevel(mContext);
+                // read now, an earlier command may have saved it after this one was queued
+                final int last = mConfigTracker.get().lastMediaLevel;
                 mAudioManager.setStreamVolume(AudioManager.STREAM_MUSIC,
                         Math.round((float)max * (float)last / 100f), AudioManager.FLAG_SHOW_UI);
             }
         }
-        if (Constants.getIsSliderDialogEnabled(mContext))
-            sendNotification(scanCode, keyCodeValue);
+        if (command.config.dialogEnabled)
+            sendNotification(command.scanCode, keyCodeValue);
 
         mPrevKeyCode = keyCodeValue;
-        return null;
+        Trace.traceEnd(Trace.TRACE_TAG_INPUT);
+        mLatency.record(SliderLatencyStats.STAGE_APPLY, SystemClock.uptimeMillis() - start);
+    }
+
+    private void onConfirmed(SliderCommand command, boolean confirmed) {
+        if (confirmed) {
+            mLatency.record(SliderLatencyStats.STAGE_CONFIRM,
+                    SystemClock.uptimeMillis() - command.eventTime);
+        } else {
+            mLatency.recordUnconfirmed();
+        }
+        Trace.asyncTraceEnd(Trace.TRACE_TAG_INPUT, TRACE_TRANSITION, command.traceCookie);
+        if (mConfirmingCommand == command) mConfirmingCommand = null;
     }
 
     @Override
@@ -169,6 +281,29 @@ public class KeyHandler implements DeviceKeyHandler {
         }
     }
 
+    /**
+     * A classified slider transition, everything its side effects need
+     */
+    private static final class SliderCommand {
+        final int scanCode;
+        final int value;
+        final SliderConfig config;
+        // uptime of the kernel event and of handleKeyEvent()
+        final long eventTime;
+        final long dispatchTime;
+        final int traceCookie;
+
+        SliderCommand(int scanCode, int value, SliderConfig config, long eventTime,
+                long dispatchTime, int traceCookie) {
+            this.scanCode = scanCode;
+            this.value = value;
+            this.config = config;
+            this.eventTime = eventTime;
+            this.dispatchTime = dispatchTime;
+            this.traceCookie = traceCookie;
+        }
+    }
+
     private void sendNotification(int position, int mode) {
         final Intent intent = new Intent(Constants.SLIDER_UPDATE_ACTION);
         intent.putExtra("position", position);
@@ -21,32 +21,41 @@ import android.content.SharedPreferences;
 import android.content.Context;
 
 import com.yaap.device.DeviceSettings.Constants;
-import com.yaap.device.DeviceSettings.Utils;
+import com.yaap.device.DeviceSettings.NodeCapabilities;
+import com.yaap.device.DeviceSettings.Sysfs.NodeCodecs;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsNode;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
+import java.util.concurrent.CompletableFuture;
 
 public class DCModeSwitch {
 
-    private static final String FILE = "/sys/devices/platform/soc/soc:qcom,dsi-display-primary/dc_dim";
+    public static final String FILE =
+            SysfsRoot.resolve("/sys/devices/platform/soc/soc:qcom,dsi-display-primary/dc_dim");
+
+    private static final SysfsNode<Boolean> sNode =
+            new SysfsNode<>(FILE, NodeCodecs.bool("1"));
 
     public static final String KEY_DC_SWITCH = "dc";
 
     public static String getFile() {
-        if (Utils.fileWritable(FILE)) {
-            return FILE;
-        }
-        return null;
+        return NodeCapabilities.get().getPath(NodeCapabilities.NODE_DC);
     }
 
     public static boolean isSupported() {
-        return Utils.fileWritable(getFile());
+        return NodeCapabilities.get().isSupported(NodeCapabilities.NODE_DC);
     }
 
     public static boolean isCurrentlyEnabled() {
-        return Utils.getFileValueAsBoolean(getFile(), false);
+        if (!isSupported()) return false;
+        return sNode.read(false);
     }
 
-    public static void setEnabled(boolean enabled, Context context) {
-        Utils.writeValue(getFile(), enabled ? "1" : "0");
+    public static CompletableFuture<Boolean> setEnabled(boolean enabled, Context context) {
+        CompletableFuture<Boolean> result = isSupported()
+                ? sNode.writeAsync(enabled, false) : CompletableFuture.completedFuture(false);
         SharedPreferences prefs = Constants.getDESharedPrefs(context);
         prefs.edit().putBoolean(KEY_DC_SWITCH, enabled).commit();
+        return result;
     }
 }
@@ -22,36 +22,46 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 
 import com.yaap.device.DeviceSettings.Constants;
-import com.yaap.device.DeviceSettings.Utils;
+import com.yaap.device.DeviceSettings.NodeCapabilities;
+import com.yaap.device.DeviceSettings.Sysfs.NodeCodecs;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsNode;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
+import java.util.concurrent.CompletableFuture;
 
 public class HBMModeSwitch {
     
-    private static final String FILE = "/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/hbm";
+    public static final String FILE =
+            SysfsRoot.resolve("/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/hbm");
+
+    private static final SysfsNode<Boolean> sNode =
+            new SysfsNode<>(FILE, NodeCodecs.bool("5"));
 
     public static final String PREF_KEY_HBM_STATE = "hbm";
 
     public static String getFile() {
-        if (Utils.fileWritable(FILE)) {
-            return FILE;
-        }
-        return null;
+        return NodeCapabilities.get().getPath(NodeCapabilities.NODE_HBM);
     }
 
     public static boolean isSupported() {
-        return Utils.fileWritable(getFile());
+        return NodeCapabilities.get().isSupported(NodeCapabilities.NODE_HBM);
     }
 
     public static boolean isCurrentlyEnabled() {
-        return Utils.getFileValueAsBoolean(getFile(), false);
+        if (!isSupported()) return false;
+        return sNode.read(false);
     }
 
-    public static void setEnabled(boolean enabled, Context context) {
-        Utils.writeValue(getFile(), enabled ? "5" : "0");
+    public static CompletableFuture<Boolean> setEnabled(boolean enabled, Context context) {
+        // the kernel drops HBM on its own, always force enabling it
+        CompletableFuture<Boolean> result = isSupported()
+                ? sNode.writeAsync(enabled, enabled) : CompletableFuture.completedFuture(false);
         Intent hbmIntent = new Intent(context,
                 com.yaap.device.DeviceSettings.HBMModeService.class);
         if (enabled) context.startService(hbmIntent);
         else context.stopService(hbmIntent);
         final SharedPreferences prefs = Constants.getDESharedPrefs(context);
         prefs.edit().putBoolean(PREF_KEY_HBM_STATE, enabled).commit();
+        return result;
     }
 }
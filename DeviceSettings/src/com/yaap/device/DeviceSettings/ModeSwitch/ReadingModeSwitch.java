@@ -20,11 +20,24 @@ import android.content.Context;
 import android.os.Build;
 
 import com.yaap.device.DeviceSettings.Constants;
-import com.yaap.device.DeviceSettings.Utils;
+import com.yaap.device.DeviceSettings.NodeCapabilities;
+import com.yaap.device.DeviceSettings.Sysfs.NodeCodecs;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsNode;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
+import java.util.concurrent.CompletableFuture;
 
 public class ReadingModeSwitch {
 
-    private static final String FILE = "/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/reading";
+    public static final String FILE =
+            SysfsRoot.resolve("/sys/devices/platform/soc/ae00000.qcom,mdss_mdp/drm/card0/card0-DSI-1/reading");
+
+    // node states in STATE_* order, anything else the node reports is rejected
+    private enum State { DISABLED, ENABLED, ENABLED_HIGH }
+    private static final State[] STATES = State.values();
+
+    private static final SysfsNode<State> sNode =
+            new SysfsNode<>(FILE, NodeCodecs.enumOf(STATES, "0", "1", "2"));
 
     private static final String[] SUPPORTED_DEVICES = {
         "OnePlus7T",
@@ -37,30 +50,45 @@ public class ReadingModeSwitch {
     public static final int STATE_ENABLED_HIGH = 2;
 
     public static String getFile() {
-        if (Utils.fileWritable(FILE)) {
-            return FILE;
-        }
-        return null;
+        return NodeCapabilities.get().getPath(NodeCapabilities.NODE_READING);
     }
 
     public static boolean isSupported() {
-        boolean deviceSupported = false;
+        return NodeCapabilities.get().isSupported(NodeCapabilities.NODE_READING);
+    }
+
+    public static boolean isDeviceSupported() {
         for (String str : SUPPORTED_DEVICES) {
             if (Build.DEVICE.equals(str)) {
-                deviceSupported = true;
-                break;
+                return true;
             }
         }
-        return deviceSupported && Utils.fileWritable(getFile());
+        return false;
     }
 
-    public static void setState(int state, Context context) {
-        Utils.writeValue(getFile(), String.valueOf(state));
+    public static CompletableFuture<Boolean> setState(int state, Context context) {
+        CompletableFuture<Boolean> result = isSupported() && state >= 0 && state < STATES.length
+                ? sNode.writeAsync(STATES[state], false) : CompletableFuture.completedFuture(false);
         SharedPreferences prefs = Constants.getDESharedPrefs(context);
         prefs.edit().putInt(KEY_READING_SWITCH, state).commit();
+        return result;
+    }
+
+    /**
+     * Parses a value read from the reading mode node
+     * @param value the node value
+     * @return one of the STATE_* constants
+     */
+    public static int parseState(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return STATE_DISABLED;
+        }
     }
 
     public static int getState(Context context) {
-        return Integer.parseInt(Utils.getFileValue(getFile(), String.valueOf(STATE_DISABLED)));
+        if (!isSupported()) return STATE_DISABLED;
+        return sNode.read(State.DISABLED).ordinal();
     }
 }
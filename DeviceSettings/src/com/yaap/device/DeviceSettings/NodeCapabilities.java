@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import com.yaap.device.DeviceSettings.ModeSwitch.DCModeSwitch;
+import com.yaap.device.DeviceSettings.ModeSwitch.HBMModeSwitch;
+import com.yaap.device.DeviceSettings.ModeSwitch.ReadingModeSwitch;
+
+/**
+ * Immutable snapshot of which panel nodes are usable on this device.
+ * Probed once by {@link Startup} (or lazily on first use in a fresh process)
+ * so support checks are plain array lookups afterwards.
+ */
+public final class NodeCapabilities {
+
+    public static final int NODE_DC = 0;
+    public static final int NODE_HBM = 1;
+    public static final int NODE_READING = 2;
+    private static final int NODE_COUNT = 3;
+
+    private static volatile NodeCapabilities sSnapshot;
+
+    private final String[] mPaths = new String[NODE_COUNT];
+
+    private NodeCapabilities() {
+        probe(NODE_DC, DCModeSwitch.FILE, true);
+        probe(NODE_HBM, HBMModeSwitch.FILE, true);
+        probe(NODE_READING, ReadingModeSwitch.FILE, ReadingModeSwitch.isDeviceSupported());
+    }
+
+    private void probe(int node, String path, boolean deviceSupported) {
+        mPaths[node] = deviceSupported && Utils.fileWritable(path) ? path : null;
+    }
+
+    /**
+     * Probes all known nodes and publishes a new snapshot
+     * @return the new snapshot
+     */
+    public static NodeCapabilities probe() {
+        final NodeCapabilities snapshot = new NodeCapabilities();
+        sSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return the current snapshot, probing first if there is none yet
+     */
+    public static NodeCapabilities get() {
+        final NodeCapabilities snapshot = sSnapshot;
+        return snapshot != null ? snapshot : probe();
+    }
+
+    /**
+     * @param node one of the NODE_* constants
+     * @return whether the node exists and is writable
+     */
+    public boolean isSupported(int node) {
+        return mPaths[node] != null;
+    }
+
+    /**
+     * @param node one of the NODE_* constants
+     * @return the path of the node, null if it isn't supported
+     */
+    public String getPath(int node) {
+        return mPaths[node];
+    }
+}
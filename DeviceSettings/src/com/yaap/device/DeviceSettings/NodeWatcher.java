@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import static android.system.OsConstants.EINTR;
+import static android.system.OsConstants.O_CLOEXEC;
+import static android.system.OsConstants.O_NONBLOCK;
+import static android.system.OsConstants.O_RDONLY;
+import static android.system.OsConstants.POLLERR;
+import static android.system.OsConstants.POLLIN;
+import static android.system.OsConstants.POLLPRI;
+
+import android.os.FileObserver;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructPollfd;
+import android.util.Log;
+
+import com.yaap.device.DeviceSettings.Sysfs.NodeCache;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Watches panel nodes and pushes their changes to registered listeners.
+ * sysfs attributes are watched with poll(POLLPRI) on a single background
+ * thread, anything else (or a node that can't be opened) falls back to a
+ * {@link FileObserver}. POLLPRI only fires for attributes the driver calls
+ * sysfs_notify() on, so users also {@link #refresh} when they become visible.
+ * Node reads all happen on the background thread, and values written through
+ * {@link NodeCache} are published as well, so listeners and {@link #getValue}
+ * always reflect the last known node content without blocking the caller.
+ */
+public final class NodeWatcher {
+
+    private static final String TAG = "NodeWatcher";
+    private static final String SYSFS_PREFIX = "/sys/";
+    private static final int BUFFER_SIZE = 128;
+
+    public interface Listener {
+        /**
+         * Called on the executor the listener was registered with
+         * @param path the node path
+         * @param value the first line of the node content
+         */
+        void onNodeChanged(String path, String value);
+    }
+
+    private static NodeWatcher sInstance;
+
+    private final ConcurrentHashMap<String, String> mValues = new ConcurrentHashMap<>();
+    // guarded by this
+    private final HashMap<String, Watch> mWatches = new HashMap<>();
+    private final ArrayList<FileDescriptor> mPendingClose = new ArrayList<>();
+    private final ArrayList<Watch> mPendingReads = new ArrayList<>();
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private FileDescriptor mWakeRead;
+    private FileDescriptor mWakeWrite;
+    private Thread mThread;
+    private boolean mWatchesChanged;
+
+    private NodeWatcher() {
+        NodeCache.setWriteObserver(this::onNodeWritten);
+    }
+
+    public static synchronized NodeWatcher getInstance() {
+        if (sInstance == null) sInstance = new NodeWatcher();
+        return sInstance;
+    }
+
+    /**
+     * Starts delivering changes of a node to a listener.
+     * The current value is delivered right away if known, otherwise once the
+     * background thread read it.
+     * @param path the node path, ignored if null
+     * @param executor the executor to call the listener on
+     * @param listener the listener
+     */
+    public synchronized void register(String path, Executor executor, Listener listener) {
+        if (path == null) return;
+        Watch watch = mWatches.get(path);
+        if (watch == null) {
+            watch = new Watch(path);
+            mWatches.put(path, watch);
+            startWatching(watch);
+        }
+        watch.mListeners.put(listener, executor);
+        final String value = mValues.get(path);
+        if (value != null) executor.execute(() -> listener.onNodeChanged(path, value));
+    }
+
+    /**
+     * Stops delivering changes to a listener, for all nodes
+     * @param listener the listener
+     */
+    public synchronized void unregister(Listener listener) {
+        final Iterator<Watch> it = mWatches.values().iterator();
+        while (it.hasNext()) {
+            final Watch watch = it.next();
+            watch.mListeners.remove(listener);
+            if (!watch.mListeners.isEmpty()) continue;
+            it.remove();
+            stopWatching(watch);
+        }
+    }
+
+    /**
+     * @param path the node path
+     * @return the last known value of a watched node, null if unknown
+     */
+    public String getValue(String path) {
+        if (path == null) return null;
+        return mValues.get(path);
+    }
+
+    /**
+     * Publishes a value we know a node now holds (e.g. after writing it)
+     * @param path the node path
+     * @param value the value
+     */
+    public void publish(String path, String value) {
+        if (path == null || value == null) return;
+        final List<Map.Entry<Listener, Executor>> listeners;
+        synchronized (this) {
+            final Watch watch = mWatches.get(path);
+            if (watch == null) return;
+            final String old = mValues.put(path, value);
+            if (value.equals(old)) return;
+            listeners = new ArrayList<>(watch.mListeners.entrySet());
+        }
+        for (Map.Entry<Listener, Executor> entry : listeners) {
+            final Listener listener = entry.getKey();
+            entry.getValue().execute(() -> listener.onNodeChanged(path, value));
+        }
+    }
+
+    /**
+     * Re-reads a watched node on the background thread and publishes its
+     * value if it changed. Catches changes made inside the kernel that no
+     * notification reports.
+     * @param path the node path, ignored if not watched
+     */
+    public synchronized void refresh(String path) {
+        if (path == null) return;
+        final Watch watch = mWatches.get(path);
+        if (watch != null) requestRead(watch);
+    }
+
+    private void onNodeWritten(String path, byte[] value, int len) {
+        int end = 0;
+        while (end < len && value[end] != '\n' && value[end] != '\r') end++;
+        publish(path, new String(value, 0, end, StandardCharsets.UTF_8));
+    }
+
+    private void startWatching(Watch watch) {
+        if (watch.mPath.startsWith(SYSFS_PREFIX)) {
+            try {
+                watch.mFd = Os.open(watch.mPath, O_RDONLY | O_CLOEXEC, 0);
+                ensureThread();
+                mWatchesChanged = true;
+                // the first read also arms the poll notification
+                requestRead(watch);
+                return;
+            } catch (ErrnoException e) {
+                Log.w(TAG, "Failed polling " + watch.mPath + ", falling back to FileObserver", e);
+                closeQuietly(watch.mFd);
+                watch.mFd = null;
+            }
+        }
+        watch.mObserver = new FileObserver(new File(watch.mPath),
+                FileObserver.MODIFY | FileObserver.CLOSE_WRITE) {
+            @Override
+            public void onEvent(int event, String path) {
+                // already on the FileObserver thread
+                readWatch(watch);
+            }
+        };
+        watch.mObserver.startWatching();
+        try {
+            ensureThread();
+        } catch (ErrnoException e) {
+            Log.e(TAG, "Failed starting the watcher thread", e);
+        }
+        requestRead(watch);
+    }
+
+    /**
+     * Queues a read of the node on the background thread, must hold this
+     */
+    private void requestRead(Watch watch) {
+        if (mThread == null) {
+            // nowhere to offload to, better late than never
+            readWatch(watch);
+            return;
+        }
+        if (!mPendingReads.contains(watch)) mPendingReads.add(watch);
+        wakeUp();
+    }
+
+    private void readWatch(Watch watch) {
+        if (watch.mFd != null) {
+            readAndPublish(watch);
+            return;
+        }
+        final String value = NodeCache.readLine(watch.mPath);
+        if (value != null) publish(watch.mPath, value);
+    }
+
+    private void stopWatching(Watch watch) {
+        if (watch.mObserver != null) {
+            watch.mObserver.stopWatching();
+            watch.mObserver = null;
+        }
+        mPendingReads.remove(watch);
+        if (watch.mFd != null) {
+            // closed by the poll thread once it stopped polling it
+            mPendingClose.add(watch.mFd);
+            mWatchesChanged = true;
+            wakeUp();
+        }
+        mValues.remove(watch.mPath);
+    }
+
+    private void ensureThread() throws ErrnoException {
+        if (mThread != null) return;
+        final FileDescriptor[] pipe = Os.pipe2(O_CLOEXEC | O_NONBLOCK);
+        mWakeRead = pipe[0];
+        mWakeWrite = pipe[1];
+        mThread = new Thread(this::pollLoop, TAG);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    private void wakeUp() {
+        if (mWakeWrite == null) return;
+        try {
+            Os.write(mWakeWrite, new byte[] { 1 }, 0, 1);
+        } catch (Exception e) {
+            // already pending
+        }
+    }
+
+    private void pollLoop() {
+        StructPollfd[] fds = null;
+        Watch[] watches = null;
+        final ArrayList<FileDescriptor> toClose = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                if (fds == null || mWatchesChanged) {
+                    mWatchesChanged = false;
+                    // fds of removed watches can be closed once we stop polling them
+                    toClose.addAll(mPendingClose);
+                    mPendingClose.clear();
+                    final ArrayList<Watch> polled = new ArrayList<>();
+                    for (Watch watch : mWatches.values()) {
+                        if (watch.mFd != null) polled.add(watch);
+                    }
+                    watches = polled.toArray(new Watch[0]);
+                    fds = new StructPollfd[watches.length + 1];
+                    fds[0] = new StructPollfd();
+                    fds[0].fd = mWakeRead;
+                    fds[0].events = (short) POLLIN;
+                    for (int i = 0; i < watches.length; i++) {
+                        fds[i + 1] = new StructPollfd();
+                        fds[i + 1].fd = watches[i].mFd;
+                        fds[i + 1].events = (short) (POLLPRI | POLLERR);
+                    }
+                }
+            }
+            for (FileDescriptor fd : toClose) closeQuietly(fd);
+            toClose.clear();
+
+            try {
+                Os.poll(fds, -1);
+            } catch (ErrnoException e) {
+                if (e.errno == EINTR) continue;
+                Log.e(TAG, "poll failed, stopping", e);
+                return;
+            }
+
+            if (fds[0].revents != 0) {
+                drainWakeUp();
+                final Watch[] reads;
+                synchronized (this) {
+                    reads = mPendingReads.toArray(new Watch[0]);
+                    mPendingReads.clear();
+                }
+                // fds of removed watches are only closed at the top of the loop
+                for (Watch watch : reads) readWatch(watch);
+            }
+            for (int i = 1; i < fds.length; i++) {
+                if ((fds[i].revents & (POLLPRI | POLLERR)) == 0) continue;
+                readAndPublish(watches[i - 1]);
+            }
+        }
+    }
+
+    private void drainWakeUp() {
+        final byte[] buf = new byte[16];
+        try {
+            while (Os.read(mWakeRead, buf, 0, buf.length) > 0) { }
+        } catch (Exception e) {
+            // EAGAIN, drained
+        }
+    }
+
+    private void readAndPublish(Watch watch) {
+        final String value;
+        synchronized (mBuffer) {
+            int len;
+            try {
+                len = Os.pread(watch.mFd, mBuffer, 0, mBuffer.length, 0);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed reading " + watch.mPath, e);
+                return;
+            }
+            int end = 0;
+            while (end < len && mBuffer[end] != '\n') end++;
+            value = new String(mBuffer, 0, end, StandardCharsets.UTF_8);
+        }
+        publish(watch.mPath, value);
+    }
+
+    private static void closeQuietly(FileDescriptor fd) {
+        if (fd == null) return;
+        try {
+            Os.close(fd);
+        } catch (ErrnoException e) {
+            // ignore
+        }
+    }
+
+    private static final class Watch {
+        final String mPath;
+        final HashMap<Listener, Executor> mListeners = new HashMap<>();
+        FileDescriptor mFd;
+        FileObserver mObserver;
+
+        Watch(String path) {
+            mPath = path;
+        }
+    }
+}
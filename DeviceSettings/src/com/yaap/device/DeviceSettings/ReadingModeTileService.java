@@ -16,25 +16,22 @@
 package com.yaap.device.DeviceSettings;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.service.quicksettings.Tile;
 import android.service.quicksettings.TileService;
 
 import com.yaap.device.DeviceSettings.ModeSwitch.ReadingModeSwitch;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
 
-public class ReadingModeTileService extends TileService
-        implements SharedPreferences.OnSharedPreferenceChangeListener {
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
-    private SharedPreferences mPrefs;
-    private boolean mInternalStart = false;
+public class ReadingModeTileService extends TileService implements NodeWatcher.Listener {
+
+    private int mState = ReadingModeSwitch.STATE_DISABLED;
 
     @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)  {
-        if (!key.equals(ReadingModeSwitch.KEY_READING_SWITCH)) return;
-        if (mInternalStart) {
-            mInternalStart = false;
-            return;
-        }
+    public void onNodeChanged(String path, String value) {
+        mState = ReadingModeSwitch.parseState(value);
         refreshState();
     }
 
@@ -56,36 +53,35 @@ public class ReadingModeTileService extends TileService
     @Override
     public void onStartListening() {
         super.onStartListening();
+        NodeWatcher.getInstance().register(ReadingModeSwitch.getFile(), getMainExecutor(), this);
+        NodeWatcher.getInstance().refresh(ReadingModeSwitch.getFile());
         refreshState();
-        mPrefs = Constants.getDESharedPrefs(getApplicationContext());
-        mPrefs.registerOnSharedPreferenceChangeListener(this);
     }
 
     @Override
     public void onStopListening() {
         super.onStopListening();
-        mPrefs.unregisterOnSharedPreferenceChangeListener(this);
-        mPrefs = null;
+        NodeWatcher.getInstance().unregister(this);
     }
 
     @Override
     public void onClick() {
         super.onClick();
-        mInternalStart = true;
-        int state = ReadingModeSwitch.getState(this);
-        if (++state > 2) state = 0;
-        ReadingModeSwitch.setState(state, this);
-        refreshState(state);
+        if (++mState > 2) mState = 0;
+        ReadingModeSwitch.setState(mState, this).thenAcceptAsync(success -> {
+            // reconcile with the node if the write did not go through
+            if (success) return;
+            mState = ReadingModeSwitch.getState(this);
+            refreshState();
+        }, getMainExecutor());
+        refreshState();
     }
 
     private void refreshState() {
-        refreshState(ReadingModeSwitch.getState(this));
-    }
-
-    private void refreshState(int state) {
         final Tile tile = getQsTile();
-        setLabelByState(this, tile, state);
-        setTileStateByState(this, tile, state);
+        if (tile == null) return;
+        setLabelByState(this, tile, mState);
+        setTileStateByState(this, tile, mState);
         tile.updateTile();
     }
 
@@ -107,4 +103,9 @@ public class ReadingModeTileService extends TileService
             tileState = Tile.STATE_ACTIVE;
         tile.setState(tileState);
     }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SysfsStats.dump(pw);
+    }
 }
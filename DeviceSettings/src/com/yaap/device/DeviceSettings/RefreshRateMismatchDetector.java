@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import java.io.PrintWriter;
+
+/**
+ * Detects content rendering at a cadence the panel can't pace evenly,
+ * e.g. 60 fps on a 90Hz panel showing frames alternately for 1 and 2
+ * refreshes. A sample paces evenly when the refresh rate is close to an
+ * integer multiple of it. Works over a sliding window of samples, so a
+ * single odd sample doesn't flag anything.
+ */
+public final class RefreshRateMismatchDetector {
+
+    private static final int SAMPLE_IGNORED = 0;
+    private static final int SAMPLE_EVEN = 1;
+    private static final int SAMPLE_MISMATCH = 2;
+
+    // below this the content is considered static and tells nothing
+    private static final float MIN_FPS = 5f;
+    // the largest refresh rate / fps ratio checked for an even cadence
+    private static final int MAX_DIVISOR = 6;
+    // a sample matches a cadence within this many fps or this fraction of it
+    private static final float TOLERANCE_FPS = 1.5f;
+    private static final float TOLERANCE_RATIO = 0.03f;
+    // flag once this fraction of the counted samples in the window mismatch
+    private static final float MISMATCH_RATIO = 0.7f;
+
+    private final int[] mStates;
+    private final boolean[] mFitsFallback;
+    private final float mFallbackRate;
+    private final int mMinSamples;
+    // all guarded by this
+    private int mHead;
+    private int mCount;
+    private int mEvenCount;
+    private int mMismatchCount;
+    private int mFallbackCount;
+    private float mLastFps;
+    private float mLastRate;
+
+    /**
+     * @param capacity the amount of samples in the window
+     * @param minSamples the amount of counted samples needed before flagging
+     * @param fallbackRate the rate to check mismatching samples against, e.g. 60Hz
+     */
+    public RefreshRateMismatchDetector(int capacity, int minSamples, float fallbackRate) {
+        mStates = new int[capacity];
+        mFitsFallback = new boolean[capacity];
+        mMinSamples = minSamples;
+        mFallbackRate = fallbackRate;
+    }
+
+    /**
+     * @param fps the measured sample
+     * @param refreshRate the refresh rate the panel ran at, 0 if unknown
+     */
+    public synchronized void add(float fps, float refreshRate) {
+        final int state;
+        if (refreshRate <= 0 || fps < MIN_FPS) state = SAMPLE_IGNORED;
+        else if (isEvenCadence(fps, refreshRate)) state = SAMPLE_EVEN;
+        else state = SAMPLE_MISMATCH;
+        final boolean fitsFallback = state == SAMPLE_MISMATCH
+                && refreshRate != mFallbackRate && isEvenCadence(fps, mFallbackRate);
+
+        if (mCount == mStates.length) {
+            count(mStates[mHead], mFitsFallback[mHead], -1);
+        } else {
+            mCount++;
+        }
+        mStates[mHead] = state;
+        mFitsFallback[mHead] = fitsFallback;
+        mHead = (mHead + 1) % mStates.length;
+        count(state, fitsFallback, 1);
+        mLastFps = fps;
+        mLastRate = refreshRate;
+    }
+
+    public synchronized void reset() {
+        mHead = 0;
+        mCount = 0;
+        mEvenCount = 0;
+        mMismatchCount = 0;
+        mFallbackCount = 0;
+    }
+
+    /**
+     * @return whether most of the recent samples don't pace evenly on the panel
+     */
+    public synchronized boolean isMismatched() {
+        final int counted = mEvenCount + mMismatchCount;
+        return counted >= mMinSamples && mMismatchCount >= counted * MISMATCH_RATIO;
+    }
+
+    /**
+     * @return whether the content is mismatched and would pace evenly at the fallback rate
+     */
+    public synchronized boolean isFallbackBetter() {
+        return isMismatched() && mFallbackCount * 2 > mMismatchCount;
+    }
+
+    /**
+     * @return the refresh rate of the last sample, 0 if unknown
+     */
+    public synchronized float getLastRefreshRate() {
+        return mLastRate;
+    }
+
+    public synchronized void dump(PrintWriter pw, float peakRate) {
+        pw.println("Refresh rate cadence: peak=" + peakRate
+                + " last=" + mLastFps + "fps@" + mLastRate + "Hz"
+                + " even=" + mEvenCount
+                + " mismatch=" + mMismatchCount
+                + " fits" + Math.round(mFallbackRate) + "Hz=" + mFallbackCount
+                + (isMismatched() ? " MISMATCHED" : "")
+                + (isFallbackBetter() ? ", forcing " + Math.round(mFallbackRate)
+                        + "Hz would pace evenly" : ""));
+    }
+
+    static boolean isEvenCadence(float fps, float refreshRate) {
+        for (int divisor = 1; divisor <= MAX_DIVISOR; divisor++) {
+            final float cadence = refreshRate / divisor;
+            final float tolerance = Math.max(TOLERANCE_FPS, cadence * TOLERANCE_RATIO);
+            if (Math.abs(fps - cadence) <= tolerance) return true;
+            if (cadence < fps) break;
+        }
+        return false;
+    }
+
+    private void count(int state, boolean fitsFallback, int delta) {
+        if (state == SAMPLE_EVEN) mEvenCount += delta;
+        else if (state == SAMPLE_MISMATCH) mMismatchCount += delta;
+        if (fitsFallback) mFallbackCount += delta;
+    }
+}
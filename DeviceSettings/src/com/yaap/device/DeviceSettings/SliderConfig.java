@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.UserHandle;
+import android.provider.Settings;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable snapshot of the settings the alert slider handling depends on.
+ * A {@link Tracker} keeps the current snapshot up to date from content
+ * observers, so key handling only reads memory instead of querying the
+ * settings provider on the input dispatch path.
+ */
+public final class SliderConfig {
+
+    // value of a position without a mapped mode
+    public static final int VALUE_UNKNOWN = -1;
+
+    public final int topValue;
+    public final int middleValue;
+    public final int bottomValue;
+    public final boolean setupCompleted;
+    public final boolean muteMediaEnabled;
+    public final boolean dialogEnabled;
+    public final int lastMediaLevel;
+    public final int coalesceWindowMs;
+
+    private SliderConfig(int topValue, int middleValue, int bottomValue,
+            boolean setupCompleted, boolean muteMediaEnabled, boolean dialogEnabled,
+            int lastMediaLevel, int coalesceWindowMs) {
+        this.topValue = topValue;
+        this.middleValue = middleValue;
+        this.bottomValue = bottomValue;
+        this.setupCompleted = setupCompleted;
+        this.muteMediaEnabled = muteMediaEnabled;
+        this.dialogEnabled = dialogEnabled;
+        this.lastMediaLevel = lastMediaLevel;
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    /**
+     * Reads a fresh snapshot from the settings provider
+     * @param context context for ContentResolver
+     */
+    public static SliderConfig load(Context context) {
+        return new SliderConfig(
+                Constants.getPreferenceInt(context, Constants.NOTIF_SLIDER_TOP_KEY),
+                Constants.getPreferenceInt(context, Constants.NOTIF_SLIDER_MIDDLE_KEY),
+                Constants.getPreferenceInt(context, Constants.NOTIF_SLIDER_BOTTOM_KEY),
+                Settings.Secure.getInt(context.getContentResolver(),
+                        Settings.Secure.USER_SETUP_COMPLETE, 0) != 0,
+                Constants.getIsMuteMediaEnabled(context),
+                Constants.getIsSliderDialogEnabled(context),
+                Constants.getLastMediaLevel(context),
+                Constants.getSliderCoalesceWindow(context));
+    }
+
+    /**
+     * @param scanCode the scan code of a slider position
+     * @return the mode assigned to the position, {@link #VALUE_UNKNOWN} if not a slider position
+     */
+    public int getValue(int scanCode) {
+        switch (scanCode) {
+            case Constants.POSITION_TOP:
+                return topValue;
+            case Constants.POSITION_MIDDLE:
+                return middleValue;
+            case Constants.POSITION_BOTTOM:
+                return bottomValue;
+            default:
+                return VALUE_UNKNOWN;
+        }
+    }
+
+    /**
+     * @return a copy of this snapshot with another last media level
+     */
+    public SliderConfig withLastMediaLevel(int level) {
+        return new SliderConfig(topValue, middleValue, bottomValue, setupCompleted,
+                muteMediaEnabled, dialogEnabled, level, coalesceWindowMs);
+    }
+
+    /**
+     * Publishes the current snapshot through an atomic reference.
+     * Any observed change reloads the whole snapshot, they are rare and the
+     * reload runs on the tracker handler rather than the reader's thread.
+     */
+    public static final class Tracker {
+
+        private final Context mContext;
+        private final Handler mHandler;
+        private final AtomicReference<SliderConfig> mConfig = new AtomicReference<>();
+        private boolean mStarted;
+
+        /**
+         * @param context context for ContentResolver
+         * @param handler the handler observers reload the snapshot on
+         */
+        public Tracker(Context context, Handler handler) {
+            mContext = context;
+            mHandler = handler;
+        }
+
+        /**
+         * Registers the observers and loads the first snapshot, on the tracker handler
+         */
+        public void start() {
+            mHandler.post(() -> {
+                if (mStarted) return;
+                mStarted = true;
+                final ContentResolver resolver = mContext.getContentResolver();
+                for (String key : Constants.sStringKeyPreferenceMap.values()) {
+                    observe(resolver, Settings.System.getUriFor(key));
+                }
+                observe(resolver, Settings.System.getUriFor(Constants.NOTIF_SLIDER_MUTE_MEDIA_KEY));
+                observe(resolver, Settings.System.getUriFor(
+                        Constants.NOTIF_SLIDER_MUTE_MEDIA_LEVEL_KEY));
+                observe(resolver, Settings.System.getUriFor(Constants.NOTIF_DIALOG_ENABLED_KEY));
+                observe(resolver, Settings.System.getUriFor(
+                        Constants.NOTIF_SLIDER_COALESCE_WINDOW_KEY));
+                observe(resolver, Settings.Secure.getUriFor(Settings.Secure.USER_SETUP_COMPLETE));
+                // values are read for the current user
+                mContext.registerReceiver(mUserSwitchReceiver,
+                        new IntentFilter(Intent.ACTION_USER_SWITCHED), null, mHandler);
+                reload();
+            });
+        }
+
+        /**
+         * @return the current snapshot, loaded on the caller's thread only if
+         *         the tracker didn't load one yet
+         */
+        public SliderConfig get() {
+            final SliderConfig config = mConfig.get();
+            if (config != null) return config;
+            // only publish over nothing, never over a snapshot a reload published meanwhile
+            mConfig.compareAndSet(null, load(mContext));
+            return mConfig.get();
+        }
+
+        /**
+         * Publishes the last media level written by the caller without waiting for the observer.
+         * Only called on the tracker handler thread, so it can't race a reload.
+         */
+        public void setLastMediaLevel(int level) {
+            mConfig.set(get().withLastMediaLevel(level));
+        }
+
+        private void observe(ContentResolver resolver, Uri uri) {
+            resolver.registerContentObserver(uri, false, mObserver, UserHandle.USER_ALL);
+        }
+
+        private void reload() {
+            mConfig.set(load(mContext));
+        }
+
+        private final ContentObserver mObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                mHandler.post(Tracker.this::reload);
+            }
+        };
+
+        private final BroadcastReceiver mUserSwitchReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                reload();
+            }
+        };
+    }
+}
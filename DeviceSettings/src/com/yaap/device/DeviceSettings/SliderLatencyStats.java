@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import java.io.PrintWriter;
+
+/**
+ * Latency histograms of the stages of a slider transition, with 1ms buckets
+ * so percentiles are exact to the millisecond up to {@link #MAX_MS}.
+ */
+public final class SliderLatencyStats {
+
+    // kernel event time to KeyHandler.handleKeyEvent()
+    public static final int STAGE_DISPATCH = 0;
+    // handleKeyEvent() to the command being applied, includes the coalescing window
+    public static final int STAGE_QUEUE = 1;
+    // running the side effects of the command
+    public static final int STAGE_APPLY = 2;
+    // kernel event time to ringer and zen mode confirmed applied
+    public static final int STAGE_CONFIRM = 3;
+    private static final int STAGES = 4;
+    private static final String[] STAGE_NAMES = { "dispatch", "queue", "apply", "confirm" };
+
+    // the last bucket also holds anything slower
+    private static final int MAX_MS = 2000;
+
+    // all guarded by this
+    private final long[][] mBuckets = new long[STAGES][MAX_MS + 1];
+    private final long[] mCounts = new long[STAGES];
+    private final long[] mSums = new long[STAGES];
+    private final long[] mMax = new long[STAGES];
+    private long mCoalesced;
+    private long mUnconfirmed;
+
+    public synchronized void record(int stage, long ms) {
+        ms = Math.max(0, ms);
+        mBuckets[stage][(int) Math.min(MAX_MS, ms)]++;
+        mCounts[stage]++;
+        mSums[stage] += ms;
+        mMax[stage] = Math.max(mMax[stage], ms);
+    }
+
+    /**
+     * Counts a transition dropped in favor of a later one of the same gesture
+     */
+    public synchronized void recordCoalesced() {
+        mCoalesced++;
+    }
+
+    /**
+     * Counts a transition whose ringer / zen mode was never confirmed
+     */
+    public synchronized void recordUnconfirmed() {
+        mUnconfirmed++;
+    }
+
+    /**
+     * @param stage the stage
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in ms at that percentile, 0 without samples
+     */
+    public synchronized long getPercentile(int stage, int percentile) {
+        final long count = mCounts[stage];
+        if (count == 0) return 0;
+        final long target = Math.max(1, (count * percentile + 99) / 100);
+        final long[] buckets = mBuckets[stage];
+        long seen = 0;
+        for (int ms = 0; ms <= MAX_MS; ms++) {
+            seen += buckets[ms];
+            if (seen >= target) return ms;
+        }
+        return MAX_MS;
+    }
+
+    public synchronized void dump(PrintWriter pw) {
+        pw.println("Slider latency (ms, " + MAX_MS + " means at least):");
+        for (int stage = 0; stage < STAGES; stage++) {
+            final long count = mCounts[stage];
+            pw.println("  " + STAGE_NAMES[stage] + ": count=" + count
+                    + " avg=" + (count > 0 ? mSums[stage] / count : 0)
+                    + " p50=" + getPercentile(stage, 50)
+                    + " p95=" + getPercentile(stage, 95)
+                    + " p99=" + getPercentile(stage, 99)
+                    + " max=" + mMax[stage]);
+        }
+        pw.println("  coalesced=" + mCoalesced + " unconfirmed=" + mUnconfirmed);
+    }
+}
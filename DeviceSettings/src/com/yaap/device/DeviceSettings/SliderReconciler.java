@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings;
+
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.media.AudioManager;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * Drives the ringer mode to a target after a zen mode change.
+ * setZenMode() is applied asynchronously and may override the ringer mode
+ * set right after it, so once armed this re-applies the target ringer mode
+ * whenever the system reports a ringer or interruption filter change,
+ * until both zen and ringer match their targets.
+ * Without enforcing it only waits for the zen mode to be applied.
+ * Bounded by a retry budget and a timeout, and only used on one handler thread.
+ */
+public final class SliderReconciler {
+
+    private static final String TAG = SliderReconciler.class.getSimpleName();
+
+    private static final int MAX_RETRIES = 3;
+    // disarm if the system never reports back
+    private static final long TIMEOUT_MS = 2000;
+
+    public interface Listener {
+        /**
+         * Called once per reconciliation that wasn't cancelled
+         * @param confirmed whether the targets were reached
+         */
+        void onReconciled(boolean confirmed);
+    }
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final AudioManager mAudioManager;
+    private final NotificationManager mNotificationManager;
+    private final Runnable mTimeout = this::onTimeout;
+    private Listener mListener;
+    private boolean mEnforceRinger;
+    private boolean mRegistered;
+    private boolean mArmed;
+    private int mTargetRingerMode;
+    private int mTargetZenMode;
+    private int mRetriesLeft;
+
+    /**
+     * @param handler the handler of the thread using this, receives the system reports
+     */
+    public SliderReconciler(Context context, Handler handler, AudioManager audioManager,
+            NotificationManager notificationManager) {
+        mContext = context;
+        mHandler = handler;
+        mAudioManager = audioManager;
+        mNotificationManager = notificationManager;
+    }
+
+    /**
+     * Starts converging on the targets, replacing any previous ones
+     * @param ringerMode the target internal ringer mode
+     * @param zenMode the zen mode that was requested
+     * @param enforceRinger whether to re-apply the ringer mode, else it is not checked
+     * @param listener told about the outcome, may be null
+     */
+    public void reconcile(int ringerMode, int zenMode, boolean enforceRinger,
+            Listener listener) {
+        if (!mRegistered) {
+            final IntentFilter filter = new IntentFilter(
+                    AudioManager.INTERNAL_RINGER_MODE_CHANGED_ACTION);
+            filter.addAction(AudioManager.RINGER_MODE_CHANGED_ACTION);
+            filter.addAction(NotificationManager.ACTION_INTERRUPTION_FILTER_CHANGED);
+            mContext.registerReceiver(mReceiver, filter, null, mHandler);
+            mRegistered = true;
+        }
+        mArmed = true;
+        mTargetRingerMode = ringerMode;
+        mTargetZenMode = zenMode;
+        mEnforceRinger = enforceRinger;
+        mListener = listener;
+        mRetriesLeft = MAX_RETRIES;
+        mHandler.removeCallbacks(mTimeout);
+        mHandler.postDelayed(mTimeout, TIMEOUT_MS);
+        // the system may already have settled
+        evaluate();
+    }
+
+    /**
+     * Stops converging, e.g. because a newer transition takes over
+     */
+    public void cancel() {
+        mArmed = false;
+        mListener = null;
+        mHandler.removeCallbacks(mTimeout);
+    }
+
+    private void finish(boolean confirmed) {
+        final Listener listener = mListener;
+        cancel();
+        if (listener != null) listener.onReconciled(confirmed);
+    }
+
+    private void evaluate() {
+        if (!mArmed) return;
+        final boolean ringerDone = !mEnforceRinger
+                || mAudioManager.getRingerModeInternal() == mTargetRingerMode;
+        if (ringerDone && mNotificationManager.getZenMode() == mTargetZenMode) {
+            // converged, later zen side effects can't touch the ringer anymore
+            finish(true);
+            return;
+        }
+        if (ringerDone) return;
+        if (mRetriesLeft == 0) {
+            Log.w(TAG, "ringer mode did not converge to " + mTargetRingerMode);
+            finish(false);
+            return;
+        }
+        mRetriesLeft--;
+        mAudioManager.setRingerModeInternal(mTargetRingerMode);
+    }
+
+    private void onTimeout() {
+        if (!mArmed) return;
+        // last chance in case a report got lost
+        mRetriesLeft = Math.min(mRetriesLeft, 1);
+        evaluate();
+        if (mArmed) finish(false);
+    }
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            evaluate();
+        }
+    };
+}
@@ -31,32 +31,33 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.provider.Settings;
+import android.util.Log;
 import androidx.preference.PreferenceManager;
 
 import com.yaap.device.DeviceSettings.ModeSwitch.*;
+import com.yaap.device.DeviceSettings.Sysfs.PanelTransaction;
 
 import java.util.List;
 import java.util.Map;
 
 public class Startup extends BroadcastReceiver {
 
+    private static final String TAG = "DeviceSettingsStartup";
     private static final String KEY_MIGRATION_DONE = "migration_done_2";
     private static final String PKG_NAME = "com.yaap.device.DeviceSettings";
     private static final String READING_TILE_CLASS_NAME = PKG_NAME + ".ReadingModeTileService";
 
-    private static final Map<String, String> sKeyFileMap = Map.of(
+    // only panel modes meant to survive a reboot, HBM and reading mode are
+    // dropped on boot (see the pref reset below) and must not come back on their own
+    private static final Map<String, Integer> sKeyNodeMap = Map.of(
         // DC Dimming
-        KEY_DC_SWITCH, DCModeSwitch.getFile()
+        KEY_DC_SWITCH, NodeCapabilities.NODE_DC
     );
 
-    private void restore(String file, boolean enabled) {
-        if (file == null) return;
-        if (enabled) Utils.writeValue(file, "1");
-    }
-
     @Override
     public void onReceive(final Context context, final Intent intent) {
         final SharedPreferences dePrefs = Constants.getDESharedPrefs(context);
+        final NodeCapabilities caps = NodeCapabilities.probe();
 
         if (intent.getAction().equals(ACTION_BOOT_COMPLETED)) {
             if (!dePrefs.getBoolean(KEY_MIGRATION_DONE, false)) {
@@ -65,7 +66,7 @@ public class Startup extends BroadcastReceiver {
                 final SharedPreferences.Editor oldPrefsEditor = oldPrefs.edit();
                 final SharedPreferences.Editor dePrefsEditor = dePrefs.edit();
 
-                for (String prefKey : sKeyFileMap.keySet()) {
+                for (String prefKey : sKeyNodeMap.keySet()) {
                     if (!oldPrefs.contains(prefKey)) continue;
                     dePrefsEditor.putBoolean(prefKey, oldPrefs.getBoolean(prefKey, false));
                     oldPrefsEditor.remove(prefKey);
@@ -80,7 +81,7 @@ public class Startup extends BroadcastReceiver {
             }
 
             // disable unavailable tiles
-            if (!ReadingModeSwitch.isSupported()) {
+            if (!caps.isSupported(NodeCapabilities.NODE_READING)) {
                 PackageManager pm = context.getPackageManager();
                 ComponentName cn = new ComponentName(PKG_NAME, READING_TILE_CLASS_NAME);
                 final int enabledSetting = pm.getComponentEnabledSetting(cn);
@@ -91,11 +92,21 @@ public class Startup extends BroadcastReceiver {
 
         TouchscreenGestureSettings.MainSettingsFragment.restoreTouchscreenGestureStates(context);
 
-        // restoring state from DE shared preferences
-        for (Map.Entry<String, String> set : sKeyFileMap.entrySet()) {
+        // restoring state from DE shared preferences, all at once
+        final PanelTransaction.Builder restore = new PanelTransaction.Builder();
+        for (Map.Entry<String, Integer> set : sKeyNodeMap.entrySet()) {
             final String prefKey = set.getKey();
-            final String file = set.getValue();
-            restore(file, dePrefs.getBoolean(prefKey, false));
+            final String file = caps.getPath(set.getValue());
+            if (dePrefs.getBoolean(prefKey, false)) restore.set(file, "1");
+        }
+        final PanelTransaction transaction = restore.build();
+        if (!transaction.isEmpty()) {
+            final PendingResult pendingResult = goAsync();
+            transaction.apply().whenComplete((result, t) -> {
+                if (result != null && result.isSuccess()) Log.d(TAG, "Restore " + result);
+                else Log.e(TAG, "Restore failed: " + (result != null ? result : t));
+                pendingResult.finish();
+            });
         }
 
         // reset prefs that reflect a state that does not retain a reboot
@@ -103,7 +114,7 @@ public class Startup extends BroadcastReceiver {
         Map<String,?> keys = dePrefs.getAll();
         for (Map.Entry<String,?> entry : keys.entrySet()) {
             final String key = entry.getKey();
-            if (sKeyFileMap.containsKey(key)) continue;
+            if (sKeyNodeMap.containsKey(key)) continue;
             if (touchKeys.contains(key)) continue;
             if (KEY_MIGRATION_DONE.equals(key)) continue;
             dePrefs.edit().remove(key).commit();
@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one open {@link FileChannel} per sysfs node so repeated reads and
+ * writes only cost a positional read / write instead of open + close.
+ * sysfs attributes regenerate their content when read from offset 0, so
+ * every access is done positionally at 0.
+ * Pure java on purpose, so it can be exercised off-device.
+ */
+public final class NodeCache {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final int WRITE_FAILED = 0;
+    private static final int WRITE_SKIPPED = 1;
+    private static final int WRITE_DONE = 2;
+
+    public interface WriteObserver {
+        /**
+         * Called on the writing thread after a value actually reached a node
+         * @param path the node path
+         * @param value the buffer holding the value, only valid during the call
+         * @param len the length of the value
+         */
+        void onNodeWritten(String path, byte[] value, int len);
+    }
+
+    private static final ConcurrentHashMap<String, Handle> sHandles = new ConcurrentHashMap<>();
+    private static volatile WriteObserver sWriteObserver;
+
+    private NodeCache() {
+        // This class is not supposed to be instantiated
+    }
+
+    /**
+     * Reads the first line of the node
+     * @param path the node path
+     * @return the first line without the line terminator, null on failure
+     */
+    public static String readLine(String path) {
+        if (path == null) return null;
+        final Handle handle = getHandle(path);
+        if (handle == null) return null;
+        final String value = handle.readLine();
+        reprobeIfNeeded(path, handle);
+        return value;
+    }
+
+    /**
+     * Reads the node as a decimal integer, without allocating
+     * @param path the node path
+     * @param defValue returned when the node can't be read or parsed
+     * @return the parsed value
+     */
+    public static int readInt(String path, int defValue) {
+        if (path == null) return defValue;
+        final Handle handle = getHandle(path);
+        if (handle == null) return defValue;
+        final int value = handle.readInt(defValue);
+        reprobeIfNeeded(path, handle);
+        return value;
+    }
+
+    /**
+     * Reads the node as a boolean, without allocating.
+     * Anything but a plain "0" line is considered true.
+     * @param path the node path
+     * @param defValue returned when the node can't be read or is empty
+     * @return the parsed value
+     */
+    public static boolean readBoolean(String path, boolean defValue) {
+        if (path == null) return defValue;
+        final Handle handle = getHandle(path);
+        if (handle == null) return defValue;
+        final boolean value = handle.readBoolean(defValue);
+        reprobeIfNeeded(path, handle);
+        return value;
+    }
+
+    /**
+     * Returns the value last written to the node, without touching the node
+     * @param path the node path
+     * @return the value, null if it is not known (never written, invalidated
+     *         or seen changed by a later read)
+     */
+    public static String getLastValue(String path) {
+        if (path == null) return null;
+        final Handle handle = sHandles.get(path);
+        if (handle == null) return null;
+        return handle.getLastValue();
+    }
+
+    /**
+     * Copies the raw node content into a caller owned buffer
+     * @param path the node path
+     * @param out the buffer to copy to, content past its length is dropped
+     * @return the amount of bytes copied, -1 on failure
+     */
+    public static int read(String path, byte[] out) {
+        if (path == null) return -1;
+        final Handle handle = getHandle(path);
+        if (handle == null) return -1;
+        final int len = handle.readInto(out);
+        reprobeIfNeeded(path, handle);
+        return len;
+    }
+
+    /**
+     * Writes a value to the node, unless it is known to already hold it
+     * @param path the node path
+     * @param value the value to write
+     * @return whether the write succeeded (or was not needed)
+     */
+    public static boolean write(String path, String value) {
+        return write(path, value, false);
+    }
+
+    /**
+     * Writes a value to the node
+     * @param path the node path
+     * @param value the value to write
+     * @param force write even if the node is known to already hold the value
+     * @return whether the write succeeded (or was not needed)
+     */
+    public static boolean write(String path, String value, boolean force) {
+        if (value == null) return false;
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return write(path, bytes, bytes.length, force);
+    }
+
+    /**
+     * Writes a value held in a caller owned buffer to the node
+     * @param path the node path
+     * @param value the buffer holding the value
+     * @param len the length of the value
+     * @param force write even if the node is known to already hold the value
+     * @return whether the write succeeded (or was not needed)
+     */
+    public static boolean write(String path, byte[] value, int len, boolean force) {
+        if (path == null || value == null) return false;
+        final Handle handle = getHandle(path);
+        if (handle == null) return false;
+        final int result = handle.write(value, len, force);
+        reprobeIfNeeded(path, handle);
+        if (result == WRITE_DONE) {
+            // outside of the handle lock, observers may read nodes themselves
+            final WriteObserver observer = sWriteObserver;
+            if (observer != null) observer.onNodeWritten(path, value, len);
+        }
+        return result != WRITE_FAILED;
+    }
+
+    /**
+     * Sets the observer told about every value that reaches a node, replacing the previous one
+     * @param observer the observer, null to clear it
+     */
+    public static void setWriteObserver(WriteObserver observer) {
+        sWriteObserver = observer;
+    }
+
+    /**
+     * Forgets the last value written to the node, so the next write goes through
+     * @param path the node path
+     */
+    public static void invalidate(String path) {
+        if (path == null) return;
+        final Handle handle = sHandles.get(path);
+        if (handle != null) handle.invalidate();
+    }
+
+    /**
+     * @param path the node path
+     * @return true if a writable handle is already cached for the node
+     */
+    public static boolean isKnownWritable(String path) {
+        if (path == null) return false;
+        final Handle handle = sHandles.get(path);
+        return handle != null && handle.mWritable;
+    }
+
+    /**
+     * Closes and forgets the handle of the node, if any
+     * @param path the node path
+     */
+    public static void evict(String path) {
+        if (path == null) return;
+        final Handle handle = sHandles.remove(path);
+        if (handle != null) handle.close();
+    }
+
+    /**
+     * Drops a handle whose open or write was denied, so the next access
+     * probes the node again (e.g. once init fixed up its permissions)
+     */
+    private static void reprobeIfNeeded(String path, Handle handle) {
+        if (!handle.mNeedsProbe) return;
+        if (sHandles.remove(path, handle)) handle.close();
+    }
+
+    private static Handle getHandle(String path) {
+        Handle handle = sHandles.get(path);
+        if (handle != null) return handle;
+        final Path p = Paths.get(path);
+        if (!Files.exists(p)) return null;
+        handle = new Handle(p, Files.isWritable(p));
+        final Handle prev = sHandles.putIfAbsent(path, handle);
+        return prev != null ? prev : handle;
+    }
+
+    private static final class Handle {
+        private final Path mPath;
+        private final boolean mWritable;
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final byte[] mBytes = new byte[BUFFER_SIZE];
+        private final SysfsStats.NodeStats mStats;
+        private FileChannel mChannel;
+        // set once a read-write open was denied, e.g. for a 0200 attribute
+        private boolean mWriteOnly;
+        // last value we know the node holds, null when unknown
+        private byte[] mLastValue;
+        // set when opening failed or the node was not writable when written
+        private volatile boolean mNeedsProbe;
+
+        Handle(Path path, boolean writable) {
+            mPath = path;
+            mWritable = writable;
+            mStats = SysfsStats.forNode(path.toString());
+        }
+
+        synchronized String readLine() {
+            final int len = read();
+            if (len <= 0) return null;
+            mBuffer.get(mBytes, 0, len);
+            int end = 0;
+            while (end < len && mBytes[end] != '\n' && mBytes[end] != '\r') end++;
+            return new String(mBytes, 0, end, StandardCharsets.UTF_8);
+        }
+
+        synchronized int readInto(byte[] out) {
+            final int len = read();
+            if (len <= 0) return len;
+            final int count = Math.min(len, out.length);
+            mBuffer.get(out, 0, count);
+            return count;
+        }
+
+        synchronized int readInt(int defValue) {
+            final int len = read();
+            if (len <= 0) return defValue;
+            int i = 0;
+            while (i < len && isSpace(mBuffer.get(i))) i++;
+            boolean negative = false;
+            if (i < len && mBuffer.get(i) == '-') {
+                negative = true;
+                i++;
+            }
+            final int start = i;
+            long value = 0;
+            while (i < len) {
+                final byte b = mBuffer.get(i);
+                if (b < '0' || b > '9') break;
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE) return defValue;
+                i++;
+            }
+            if (i == start) return defValue;
+            return (int) (negative ? -value : value);
+        }
+
+        synchronized boolean readBoolean(boolean defValue) {
+            final int len = read();
+            if (len <= 0) return defValue;
+            int end = 0;
+            while (end < len && mBuffer.get(end) != '\n' && mBuffer.get(end) != '\r') end++;
+            // an empty first line holds no state either
+            if (end == 0) return defValue;
+            return !(end == 1 && mBuffer.get(0) == '0');
+        }
+
+        synchronized String getLastValue() {
+            if (mLastValue == null) return null;
+            return new String(mLastValue, StandardCharsets.UTF_8);
+        }
+
+        synchronized int write(byte[] value, int len, boolean force) {
+            if (len > BUFFER_SIZE) return WRITE_FAILED;
+            if (!mWritable) {
+                mNeedsProbe = true;
+                return WRITE_FAILED;
+            }
+            // every panel write may end up as a DSI command, skip the no-op ones
+            if (!force && isLastValue(value, len)) {
+                mStats.recordSkippedWrite();
+                return WRITE_SKIPPED;
+            }
+            mLastValue = null;
+            final long start = System.nanoTime();
+            // a cached fd may go stale (ENODEV / ESTALE) when the panel driver
+            // re-registers its attributes, reopen once before giving up
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try {
+                    final FileChannel channel = ensureOpen();
+                    mBuffer.clear();
+                    mBuffer.put(value, 0, len).flip();
+                    while (mBuffer.hasRemaining()) {
+                        channel.write(mBuffer, mBuffer.position());
+                    }
+                    mLastValue = Arrays.copyOf(value, len);
+                    mStats.recordWrite(System.nanoTime() - start, len, true);
+                    return WRITE_DONE;
+                } catch (IOException e) {
+                    close();
+                }
+            }
+            mStats.recordWrite(System.nanoTime() - start, 0, false);
+            return WRITE_FAILED;
+        }
+
+        private boolean isLastValue(byte[] value, int len) {
+            if (mLastValue == null || mLastValue.length != len) return false;
+            for (int i = 0; i < len; i++) {
+                if (mLastValue[i] != value[i]) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Reads the node content into mBuffer from offset 0
+         * @return the amount of bytes read (mBuffer flipped), -1 on failure
+         */
+        int read() {
+            final long start = System.nanoTime();
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try {
+                    final FileChannel channel = ensureOpen();
+                    if (mWriteOnly) break;
+                    mBuffer.clear();
+                    while (mBuffer.hasRemaining()
+                            && channel.read(mBuffer, mBuffer.position()) > 0) {
+                        // keep reading until EOF or the buffer is full
+                    }
+                    mBuffer.flip();
+                    mStats.recordRead(System.nanoTime() - start, mBuffer.remaining(), true);
+                    validateLastValue();
+                    return mBuffer.remaining();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+            mStats.recordRead(System.nanoTime() - start, 0, false);
+            return -1;
+        }
+
+        synchronized void invalidate() {
+            mLastValue = null;
+        }
+
+        /**
+         * Drops the last written value if the freshly read content of mBuffer
+         * shows the node changed under us (e.g. the kernel dropping HBM)
+         */
+        private void validateLastValue() {
+            if (mLastValue == null) return;
+            final int len = mBuffer.remaining();
+            int end = 0;
+            while (end < len && mBuffer.get(end) != '\n' && mBuffer.get(end) != '\r') end++;
+            int valueEnd = mLastValue.length;
+            while (valueEnd > 0 && isSpace(mLastValue[valueEnd - 1])) valueEnd--;
+            if (end != valueEnd) {
+                mLastValue = null;
+                return;
+            }
+            for (int i = 0; i < end; i++) {
+                if (mBuffer.get(i) != mLastValue[i]) {
+                    mLastValue = null;
+                    return;
+                }
+            }
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+        }
+
+        private FileChannel ensureOpen() throws IOException {
+            if (mChannel != null && mChannel.isOpen()) return mChannel;
+            try {
+                if (!mWritable) {
+                    mChannel = FileChannel.open(mPath, StandardOpenOption.READ);
+                } else if (mWriteOnly) {
+                    mChannel = FileChannel.open(mPath, StandardOpenOption.WRITE);
+                } else {
+                    try {
+                        mChannel = FileChannel.open(mPath,
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    } catch (AccessDeniedException e) {
+                        // write-only attribute, writes still work with O_WRONLY
+                        mChannel = FileChannel.open(mPath, StandardOpenOption.WRITE);
+                        mWriteOnly = true;
+                    }
+                }
+            } catch (IOException e) {
+                // the probed access no longer holds (or the node went away)
+                mNeedsProbe = true;
+                throw e;
+            }
+            return mChannel;
+        }
+
+        synchronized void close() {
+            if (mChannel == null) return;
+            try {
+                mChannel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            mChannel = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+/**
+ * Converts between a typed value and the raw bytes of a sysfs node.
+ * Implementations work on caller owned buffers so encoding never allocates.
+ */
+public interface NodeCodec<T> {
+
+    /**
+     * Encodes a value
+     * @param value the value
+     * @param out the buffer to encode to
+     * @return the length of the encoded value, -1 if it can't be encoded into out
+     */
+    int encode(T value, byte[] out);
+
+    /**
+     * Decodes a value
+     * @param in the buffer holding the first line of the node, without line terminator
+     * @param len the length of the line
+     * @return the decoded value, null if it can't be parsed
+     */
+    T decode(byte[] in, int len);
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@link NodeCodec}s the panel and motor nodes are made of.
+ */
+public final class NodeCodecs {
+
+    private static final long INVALID = Long.MIN_VALUE;
+
+    /** Decimal integer, e.g. the reading mode state */
+    public static final NodeCodec<Integer> INT = new NodeCodec<Integer>() {
+        @Override
+        public int encode(Integer value, byte[] out) {
+            return encodeInt(value, out, 0);
+        }
+
+        @Override
+        public Integer decode(byte[] in, int len) {
+            final long value = parseInt(in, 0, len);
+            return value == INVALID ? null : (int) value;
+        }
+    };
+
+    /** Comma separated decimal integers, e.g. the motor hall calibration */
+    public static final NodeCodec<int[]> CSV_INT = new NodeCodec<int[]>() {
+        @Override
+        public int encode(int[] value, byte[] out) {
+            int pos = 0;
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    if (pos >= out.length) return -1;
+                    out[pos++] = ',';
+                }
+                pos = encodeInt(value[i], out, pos);
+                if (pos < 0) return -1;
+            }
+            return pos;
+        }
+
+        @Override
+        public int[] decode(byte[] in, int len) {
+            int count = 1;
+            for (int i = 0; i < len; i++) {
+                if (in[i] == ',') count++;
+            }
+            final int[] values = new int[count];
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                int end = start;
+                while (end < len && in[end] != ',') end++;
+                final long value = parseInt(in, start, end);
+                if (value == INVALID) return null;
+                values[i] = (int) value;
+                start = end + 1;
+            }
+            return values;
+        }
+    };
+
+    /** Raw first line of the node */
+    public static final NodeCodec<String> STRING = new NodeCodec<String>() {
+        @Override
+        public int encode(String value, byte[] out) {
+            return copy(value.getBytes(StandardCharsets.UTF_8), out);
+        }
+
+        @Override
+        public String decode(byte[] in, int len) {
+            return new String(in, 0, len, StandardCharsets.UTF_8);
+        }
+    };
+
+    private NodeCodecs() {
+        // This class is not supposed to be instantiated
+    }
+
+    /**
+     * Boolean written as the given value when enabled and "0" when disabled.
+     * Anything but a plain "0" reads back as enabled.
+     * @param on the value enabling the node, e.g. "5" for HBM
+     * @return the codec
+     */
+    public static NodeCodec<Boolean> bool(String on) {
+        final byte[] onBytes = on.getBytes(StandardCharsets.UTF_8);
+        final byte[] offBytes = { '0' };
+        return new NodeCodec<Boolean>() {
+            @Override
+            public int encode(Boolean value, byte[] out) {
+                return copy(value ? onBytes : offBytes, out);
+            }
+
+            @Override
+            public Boolean decode(byte[] in, int len) {
+                return !(len == 1 && in[0] == '0');
+            }
+        };
+    }
+
+    /**
+     * Enum whose constants are each written as a fixed value
+     * @param constants the enum constants, in ordinal order
+     * @param values the value of every constant, in the same order
+     * @return the codec
+     */
+    public static <E extends Enum<E>> NodeCodec<E> enumOf(E[] constants, String... values) {
+        if (constants.length != values.length) {
+            throw new IllegalArgumentException("Expected " + constants.length + " values");
+        }
+        final byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return new NodeCodec<E>() {
+            @Override
+            public int encode(E value, byte[] out) {
+                return copy(encoded[value.ordinal()], out);
+            }
+
+            @Override
+            public E decode(byte[] in, int len) {
+                for (int i = 0; i < encoded.length; i++) {
+                    if (rangeEquals(encoded[i], in, len)) return constants[i];
+                }
+                return null;
+            }
+        };
+    }
+
+    private static int copy(byte[] value, byte[] out) {
+        if (value.length > out.length) return -1;
+        System.arraycopy(value, 0, out, 0, value.length);
+        return value.length;
+    }
+
+    private static boolean rangeEquals(byte[] value, byte[] in, int len) {
+        if (value.length != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (value[i] != in[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the decimal digits of a value
+     * @return the position past the last digit, -1 if out is too small
+     */
+    private static int encodeInt(int value, byte[] out, int pos) {
+        long v = value;
+        if (v < 0) {
+            if (pos >= out.length) return -1;
+            out[pos++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long rest = v / 10; rest > 0; rest /= 10) digits++;
+        if (pos + digits > out.length) return -1;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Parses a decimal integer surrounded by optional whitespace
+     * @return the value, INVALID if malformed
+     */
+    private static long parseInt(byte[] in, int start, int end) {
+        while (start < end && isSpace(in[start])) start++;
+        while (end > start && isSpace(in[end - 1])) end--;
+        boolean negative = false;
+        if (start < end && in[start] == '-') {
+            negative = true;
+            start++;
+        }
+        if (start == end) return INVALID;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final byte b = in[i];
+            if (b < '0' || b > '9') return INVALID;
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) return INVALID;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) return INVALID;
+        return value;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
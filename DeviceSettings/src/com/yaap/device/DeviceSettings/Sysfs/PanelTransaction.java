@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A set of node writes applied in order as a single task on {@link SysfsWriter}.
+ * If any write fails the already applied ones are rolled back to the values
+ * the nodes held before, in reverse order. The values are taken from what
+ * {@link NodeCache} last wrote, a node is only read when that is unknown.
+ */
+public final class PanelTransaction {
+
+    private final String[] mNodes;
+    private final String[] mValues;
+    private final boolean mForce;
+
+    private PanelTransaction(Builder builder) {
+        mNodes = builder.mNodes.toArray(new String[0]);
+        mValues = builder.mValues.toArray(new String[0]);
+        mForce = builder.mForce;
+    }
+
+    /**
+     * @return whether the transaction has no writes
+     */
+    public boolean isEmpty() {
+        return mNodes.length == 0;
+    }
+
+    /**
+     * Queues the transaction on {@link SysfsWriter}
+     * @return a future completed with the result once applied or rolled back
+     */
+    public CompletableFuture<Result> apply() {
+        return SysfsWriter.getInstance().submit(mNodes, mValues, this::run);
+    }
+
+    private Result run() {
+        final int count = mNodes.length;
+        final String[] previous = new String[count];
+        final long[] nanos = new long[count];
+        final boolean[] stuck = new boolean[count];
+        int failed = -1;
+        for (int i = 0; i < count; i++) {
+            previous[i] = NodeCache.getLastValue(mNodes[i]);
+            if (previous[i] == null) previous[i] = NodeCache.readLine(mNodes[i]);
+            final long start = System.nanoTime();
+            final boolean success = NodeCache.write(mNodes[i], mValues[i], mForce);
+            nanos[i] = System.nanoTime() - start;
+            if (!success) {
+                failed = i;
+                break;
+            }
+        }
+        if (failed != -1) {
+            for (int i = failed - 1; i >= 0; i--) {
+                stuck[i] = previous[i] == null || !NodeCache.write(mNodes[i], previous[i], true);
+            }
+        }
+        return new Result(mNodes, nanos, failed, stuck);
+    }
+
+    public static final class Builder {
+        private final ArrayList<String> mNodes = new ArrayList<>();
+        private final ArrayList<String> mValues = new ArrayList<>();
+        private boolean mForce;
+
+        /**
+         * Adds a write, applied after the ones added before it
+         * @param node the node path, ignored if null
+         * @param value the value to write
+         */
+        public Builder set(String node, String value) {
+            if (node == null || value == null) return this;
+            mNodes.add(node);
+            mValues.add(value);
+            return this;
+        }
+
+        /**
+         * @param force write even if nodes are known to already hold the values
+         */
+        public Builder setForce(boolean force) {
+            mForce = force;
+            return this;
+        }
+
+        public PanelTransaction build() {
+            return new PanelTransaction(this);
+        }
+    }
+
+    public static final class Result {
+        private final String[] mNodes;
+        private final long[] mNanos;
+        private final int mFailedIndex;
+        private final boolean[] mStuck;
+
+        private Result(String[] nodes, long[] nanos, int failedIndex, boolean[] stuck) {
+            mNodes = nodes;
+            mNanos = nanos;
+            mFailedIndex = failedIndex;
+            mStuck = stuck;
+        }
+
+        /**
+         * @return whether all the writes were applied
+         */
+        public boolean isSuccess() {
+            return mFailedIndex == -1;
+        }
+
+        /**
+         * @return the node whose write failed, null on success
+         */
+        public String getFailedNode() {
+            return isSuccess() ? null : mNodes[mFailedIndex];
+        }
+
+        /**
+         * @param index the index of the write
+         * @return whether the write was applied and could not be rolled back,
+         *         because the previous value was unknown or restoring it failed
+         */
+        public boolean isStuck(int index) {
+            return mStuck[index];
+        }
+
+        /**
+         * @return whether any applied write could not be rolled back
+         */
+        public boolean hasStuckWrites() {
+            for (boolean stuck : mStuck) {
+                if (stuck) return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return mNodes.length;
+        }
+
+        public String getNode(int index) {
+            return mNodes[index];
+        }
+
+        /**
+         * @param index the index of the write
+         * @return how long the write took, 0 if it was never attempted
+         */
+        public long getWriteNanos(int index) {
+            return mNanos[index];
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(isSuccess() ? "applied"
+                    : hasStuckWrites() ? "partially rolled back" : "rolled back");
+            for (int i = 0; i < mNodes.length; i++) {
+                sb.append(i == 0 ? ": " : ", ").append(mNodes[i]).append(' ')
+                        .append(mNanos[i] / 1000).append("us");
+                if (i == mFailedIndex) sb.append(" (failed)");
+                else if (mStuck[i]) sb.append(" (not rolled back)");
+            }
+            return sb.toString();
+        }
+    }
+}
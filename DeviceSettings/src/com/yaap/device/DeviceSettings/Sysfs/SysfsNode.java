@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A sysfs node holding a value of type T, encoded and decoded by a {@link NodeCodec}.
+ * I/O goes through {@link NodeCache} using a buffer preallocated per node,
+ * and the last decoded value is kept so unchanged content is never decoded twice.
+ */
+public final class SysfsNode<T> {
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final String mPath;
+    private final NodeCodec<T> mCodec;
+    // all guarded by this
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private final byte[] mLastRaw = new byte[BUFFER_SIZE];
+    private int mLastRawLen = -1;
+    private T mLastValue;
+
+    /**
+     * @param path the node path, may be null for a node the device doesn't have
+     * @param codec the codec of the node content
+     */
+    public SysfsNode(String path, NodeCodec<T> codec) {
+        mPath = path;
+        mCodec = codec;
+    }
+
+    public String getPath() {
+        return mPath;
+    }
+
+    /**
+     * Reads the node, or the value of a queued write not yet applied to it
+     * @param defValue returned when the node can't be read or decoded
+     * @return the value
+     */
+    public synchronized T read(T defValue) {
+        if (mPath == null) return defValue;
+        final String pending = SysfsWriter.getInstance().getPendingValue(mPath);
+        if (pending != null) {
+            final byte[] bytes = pending.getBytes(StandardCharsets.UTF_8);
+            final T value = mCodec.decode(bytes, lineLength(bytes, bytes.length));
+            return value != null ? value : defValue;
+        }
+        final int read = NodeCache.read(mPath, mBuffer);
+        if (read < 0) return defValue;
+        final int len = lineLength(mBuffer, read);
+        if (isLastRaw(len)) return mLastValue;
+        final T value = mCodec.decode(mBuffer, len);
+        if (value == null) return defValue;
+        remember(len, value);
+        return value;
+    }
+
+    /**
+     * @return the last value read from or written to the node, null if none yet
+     */
+    public synchronized T getLastValue() {
+        return mLastValue;
+    }
+
+    /**
+     * Writes a value on the calling thread
+     * @param value the value
+     * @param force write even if the node is known to already hold the value
+     * @return whether the write succeeded (or was not needed)
+     */
+    public synchronized boolean write(T value, boolean force) {
+        if (mPath == null || value == null) return false;
+        final int len = mCodec.encode(value, mBuffer);
+        if (len < 0 || !NodeCache.write(mPath, mBuffer, len, force)) return false;
+        remember(len, value);
+        return true;
+    }
+
+    /**
+     * Queues a write on the {@link SysfsWriter}
+     * @param value the value
+     * @param force write even if the node is known to already hold the value
+     * @return a future completed with whether the write succeeded
+     */
+    public CompletableFuture<Boolean> writeAsync(T value, boolean force) {
+        if (mPath == null || value == null) return CompletableFuture.completedFuture(false);
+        final String encoded;
+        synchronized (this) {
+            final int len = mCodec.encode(value, mBuffer);
+            if (len < 0) return CompletableFuture.completedFuture(false);
+            encoded = new String(mBuffer, 0, len, StandardCharsets.UTF_8);
+        }
+        return SysfsWriter.getInstance().submit(new String[] { mPath },
+                new String[] { encoded }, () -> write(value, force));
+    }
+
+    private boolean isLastRaw(int len) {
+        if (len != mLastRawLen) return false;
+        for (int i = 0; i < len; i++) {
+            if (mBuffer[i] != mLastRaw[i]) return false;
+        }
+        return true;
+    }
+
+    private void remember(int len, T value) {
+        System.arraycopy(mBuffer, 0, mLastRaw, 0, len);
+        mLastRawLen = len;
+        mLastValue = value;
+    }
+
+    private static int lineLength(byte[] buffer, int len) {
+        int end = 0;
+        while (end < len && buffer[end] != '\n' && buffer[end] != '\r') end++;
+        return end;
+    }
+}
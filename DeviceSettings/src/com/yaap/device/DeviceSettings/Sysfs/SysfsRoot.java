@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+/**
+ * Resolves absolute node paths against a configurable root, so the whole
+ * node tree can be replaced by a fake one (e.g. on tmpfs) off-device.
+ * The root is read from the {@value #PROPERTY} java system property once,
+ * it must be set before any class holding a node path is initialized.
+ * On device the property is unset and paths are returned unchanged.
+ */
+public final class SysfsRoot {
+
+    public static final String PROPERTY = "yaap.sysfs.root";
+
+    private static final String sRoot = normalize(System.getProperty(PROPERTY, ""));
+
+    private SysfsRoot() {
+        // This class is not supposed to be instantiated
+    }
+
+    /**
+     * @param path an absolute node path, e.g. /sys/class/...
+     * @return the path relocated under the configured root
+     */
+    public static String resolve(String path) {
+        if (sRoot.isEmpty()) return path;
+        return sRoot + path;
+    }
+
+    /**
+     * @return whether paths are relocated
+     */
+    public static boolean isRelocated() {
+        return !sRoot.isEmpty();
+    }
+
+    private static String normalize(String root) {
+        if (root == null) return "";
+        while (root.endsWith("/")) root = root.substring(0, root.length() - 1);
+        return root;
+    }
+}
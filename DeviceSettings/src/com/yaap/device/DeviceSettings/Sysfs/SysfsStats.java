@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free per-node I/O counters and fixed-bucket latency histograms.
+ */
+public final class SysfsStats {
+
+    // upper bounds of the latency buckets in microseconds, the last bucket is open
+    private static final long[] BUCKET_BOUNDS_US = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000
+    };
+    private static final int BUCKETS = BUCKET_BOUNDS_US.length + 1;
+
+    private static final ConcurrentHashMap<String, NodeStats> sStats = new ConcurrentHashMap<>();
+
+    private SysfsStats() {
+        // This class is not supposed to be instantiated
+    }
+
+    /**
+     * @param path the node path
+     * @return the stats of the node, created on first use
+     */
+    public static NodeStats forNode(String path) {
+        return sStats.computeIfAbsent(path, p -> new NodeStats());
+    }
+
+    /**
+     * Dumps the stats of every node that saw any I/O
+     * @param pw the writer to dump to
+     */
+    public static void dump(PrintWriter pw) {
+        pw.println("Sysfs I/O stats (latency buckets in us: "
+                + bucketLabels() + "):");
+        final TreeMap<String, NodeStats> sorted = new TreeMap<>(sStats);
+        if (sorted.isEmpty()) pw.println("  none");
+        for (Map.Entry<String, NodeStats> entry : sorted.entrySet()) {
+            pw.println("  " + entry.getKey() + ":");
+            entry.getValue().dump(pw, "    ");
+        }
+    }
+
+    private static String bucketLabels() {
+        final StringBuilder sb = new StringBuilder();
+        for (long bound : BUCKET_BOUNDS_US) sb.append("<").append(bound).append(' ');
+        return sb.append(">=").append(BUCKET_BOUNDS_US[BUCKET_BOUNDS_US.length - 1]).toString();
+    }
+
+    private static int bucketOf(long nanos) {
+        final long us = nanos / 1000;
+        for (int i = 0; i < BUCKET_BOUNDS_US.length; i++) {
+            if (us < BUCKET_BOUNDS_US[i]) return i;
+        }
+        return BUCKETS - 1;
+    }
+
+    public static final class NodeStats {
+        private static final int READS = 0;
+        private static final int READ_FAILURES = 1;
+        private static final int READ_BYTES = 2;
+        private static final int READ_NANOS = 3;
+        private static final int WRITES = 4;
+        private static final int WRITE_FAILURES = 5;
+        private static final int WRITE_BYTES = 6;
+        private static final int WRITE_NANOS = 7;
+        private static final int WRITES_SKIPPED = 8;
+        private static final int COUNTERS = 9;
+
+        private final AtomicLongArray mCounters = new AtomicLongArray(COUNTERS);
+        private final AtomicLongArray mReadHistogram = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray mWriteHistogram = new AtomicLongArray(BUCKETS);
+
+        private NodeStats() { }
+
+        public void recordRead(long nanos, int bytes, boolean success) {
+            mCounters.incrementAndGet(READS);
+            if (!success) mCounters.incrementAndGet(READ_FAILURES);
+            else mCounters.addAndGet(READ_BYTES, bytes);
+            mCounters.addAndGet(READ_NANOS, nanos);
+            mReadHistogram.incrementAndGet(bucketOf(nanos));
+        }
+
+        public void recordWrite(long nanos, int bytes, boolean success) {
+            mCounters.incrementAndGet(WRITES);
+            if (!success) mCounters.incrementAndGet(WRITE_FAILURES);
+            else mCounters.addAndGet(WRITE_BYTES, bytes);
+            mCounters.addAndGet(WRITE_NANOS, nanos);
+            mWriteHistogram.incrementAndGet(bucketOf(nanos));
+        }
+
+        public void recordSkippedWrite() {
+            mCounters.incrementAndGet(WRITES_SKIPPED);
+        }
+
+        private void dump(PrintWriter pw, String prefix) {
+            final long reads = mCounters.get(READS);
+            final long writes = mCounters.get(WRITES);
+            pw.println(prefix + "reads=" + reads
+                    + " failures=" + mCounters.get(READ_FAILURES)
+                    + " bytes=" + mCounters.get(READ_BYTES)
+                    + " avgUs=" + (reads > 0 ? mCounters.get(READ_NANOS) / reads / 1000 : 0)
+                    + " histogram=" + histogram(mReadHistogram));
+            pw.println(prefix + "writes=" + writes
+                    + " failures=" + mCounters.get(WRITE_FAILURES)
+                    + " skipped=" + mCounters.get(WRITES_SKIPPED)
+                    + " bytes=" + mCounters.get(WRITE_BYTES)
+                    + " avgUs=" + (writes > 0 ? mCounters.get(WRITE_NANOS) / writes / 1000 : 0)
+                    + " histogram=" + histogram(mWriteHistogram));
+        }
+
+        private static String histogram(AtomicLongArray histogram) {
+            final StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < BUCKETS; i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(histogram.get(i));
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 Yet Another AOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yaap.device.DeviceSettings.Sysfs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Applies sysfs writes off the caller's thread.
+ * Writes to the same node are applied in submission order, writes to
+ * different nodes may run in parallel.
+ */
+public final class SysfsWriter {
+
+    private static final int THREADS = 2;
+
+    private static SysfsWriter sInstance;
+
+    private final ExecutorService mExecutor;
+    // last queued task of every node with writes in flight, guarded by this
+    private final HashMap<String, CompletableFuture<?>> mTails = new HashMap<>();
+    // value of the last queued write of every node with writes in flight
+    private final ConcurrentHashMap<String, String> mPending = new ConcurrentHashMap<>();
+
+    private SysfsWriter() {
+        final AtomicInteger count = new AtomicInteger();
+        mExecutor = Executors.newFixedThreadPool(THREADS, r -> {
+            final Thread thread = new Thread(r, "SysfsWriter-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized SysfsWriter getInstance() {
+        if (sInstance == null) sInstance = new SysfsWriter();
+        return sInstance;
+    }
+
+    /**
+     * Queues a write, skipped if the node is known to already hold the value
+     * @param node the node path
+     * @param value the value to write
+     * @return a future completed with whether the write succeeded
+     */
+    public CompletableFuture<Boolean> write(String node, String value) {
+        return write(node, value, false);
+    }
+
+    /**
+     * Queues a write
+     * @param node the node path
+     * @param value the value to write
+     * @param force write even if the node is known to already hold the value
+     * @return a future completed with whether the write succeeded
+     */
+    public synchronized CompletableFuture<Boolean> write(String node, String value, boolean force) {
+        if (node == null || value == null) return CompletableFuture.completedFuture(false);
+        return submit(new String[] { node }, new String[] { value },
+                () -> NodeCache.write(node, value, force));
+    }
+
+    /**
+     * Queues a task touching several nodes as a single unit of work.
+     * It runs after every write already queued for those nodes, and writes
+     * queued for those nodes afterwards run after it.
+     * @param nodes the node paths the task writes to
+     * @param values the values the task is writing, reported as pending meanwhile
+     * @param task the task
+     * @return a future completed with the result of the task
+     */
+    public synchronized <T> CompletableFuture<T> submit(String[] nodes, String[] values,
+            Supplier<T> task) {
+        final CompletableFuture<?>[] tails = new CompletableFuture<?>[nodes.length];
+        int count = 0;
+        for (String node : nodes) {
+            final CompletableFuture<?> tail = mTails.get(node);
+            if (tail != null) tails[count++] = tail;
+        }
+        final CompletableFuture<T> run = count == 0
+                ? CompletableFuture.supplyAsync(task, mExecutor)
+                : CompletableFuture.allOf(Arrays.copyOf(tails, count))
+                        .handleAsync((r, t) -> task.get(), mExecutor);
+        // the caller only sees the result once the pending values are gone,
+        // so reading the nodes from its callbacks returns what was applied
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        for (int i = 0; i < nodes.length; i++) {
+            mTails.put(nodes[i], result);
+            mPending.put(nodes[i], values[i]);
+        }
+        run.whenComplete((r, t) -> {
+            onTaskDone(nodes, result);
+            if (t != null) result.completeExceptionally(t);
+            else result.complete(r);
+        });
+        return result;
+    }
+
+    /**
+     * @param node the node path
+     * @return the value of the last queued write not yet applied to the node, null if none
+     */
+    public String getPendingValue(String node) {
+        if (node == null) return null;
+        return mPending.get(node);
+    }
+
+    private synchronized void onTaskDone(String[] nodes, CompletableFuture<?> future) {
+        for (String node : nodes) {
+            if (mTails.get(node) != future) continue;
+            mTails.remove(node);
+            mPending.remove(node);
+        }
+    }
+}
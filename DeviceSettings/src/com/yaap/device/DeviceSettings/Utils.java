@@ -24,38 +24,14 @@ import android.content.pm.PackageManager.PackageInfoFlags;
 import android.content.res.Resources;
 import android.util.Log;
 
+import com.yaap.device.DeviceSettings.Sysfs.NodeCache;
+
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.FileReader;
 
 public class Utils {
 
     private static final String TAG = Utils.class.getSimpleName();
 
-    /**
-     * Write a string value to the specified file.
-     * @param filename      The filename
-     * @param value         The value
-     */
-    public static void writeValue(String filename, String value) {
-        if (filename == null) {
-            return;
-        }
-        try {
-            FileOutputStream fos = new FileOutputStream(filename);
-            fos.write(value.getBytes());
-            fos.flush();
-            fos.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     /**
      * Check if the specified file exists.
      * @param filename      The filename
@@ -69,46 +45,10 @@ public class Utils {
     }
 
     public static boolean fileWritable(String filename) {
-        return fileExists(filename) && new File(filename).canWrite();
-    }
-
-    public static String readLine(String filename) {
-        if (filename == null) {
-            return null;
-        }
-        BufferedReader br = null;
-        String line;
-        try {
-            br = new BufferedReader(new FileReader(filename), 1024);
-            line = br.readLine();
-        } catch (IOException e) {
-            return null;
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    // ignore
-                }
-            }
-        }
-        return line;
-    }
-
-    public static boolean getFileValueAsBoolean(String filename, boolean defValue) {
-        String fileValue = readLine(filename);
-        if(fileValue!=null){
-            return (!fileValue.equals("0"));
-        }
-        return defValue;
-    }
-
-    public static String getFileValue(String filename, String defValue) {
-        String fileValue = readLine(filename);
-        if(fileValue!=null){
-            return fileValue;
+        if (NodeCache.isKnownWritable(filename)) {
+            return true;
         }
-        return defValue;
+        return fileExists(filename) && new File(filename).canWrite();
     }
 
     public static String getLocalizedString(final Resources res,
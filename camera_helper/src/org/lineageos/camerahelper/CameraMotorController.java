@@ -17,24 +17,28 @@
 package org.lineageos.camerahelper;
 
 import android.os.FileUtils;
-import android.text.TextUtils;
 import android.util.Log;
 
+import com.yaap.device.DeviceSettings.Sysfs.NodeCodecs;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsNode;
+import com.yaap.device.DeviceSettings.Sysfs.SysfsRoot;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 public class CameraMotorController {
     private static final String TAG = "CameraMotorController";
 
     // Camera motor paths
     private static final String CAMERA_MOTOR_ENABLE_PATH =
-            "/sys/devices/platform/vendor/vendor:motor_pl/enable";
+            SysfsRoot.resolve("/sys/devices/platform/vendor/vendor:motor_pl/enable");
     public static final String CAMERA_MOTOR_HALL_CALIBRATION =
-            "/sys/devices/platform/vendor/vendor:motor_pl/hall_calibration";
+            SysfsRoot.resolve("/sys/devices/platform/vendor/vendor:motor_pl/hall_calibration");
     private static final String CAMERA_MOTOR_DIRECTION_PATH =
-            "/sys/devices/platform/vendor/vendor:motor_pl/direction";
+            SysfsRoot.resolve("/sys/devices/platform/vendor/vendor:motor_pl/direction");
     private static final String CAMERA_MOTOR_POSITION_PATH =
-            "/sys/devices/platform/vendor/vendor:motor_pl/position";
+            SysfsRoot.resolve("/sys/devices/platform/vendor/vendor:motor_pl/position");
 
     // Motor calibration data path
     public static final String CAMERA_PERSIST_HALL_CALIBRATION =
@@ -45,55 +49,66 @@ public class CameraMotorController {
             "170,170,480,0,0,480,500,0,0,500,1500";
 
     // Motor control values
-    public static final String DIRECTION_DOWN = "0";
-    public static final String DIRECTION_UP = "1";
-    public static final String ENABLED = "1";
-    public static final String POSITION_DOWN = "1";
-    public static final String POSITION_UP = "0";
+    public enum Direction { DOWN, UP }
+    public enum Position { UP, DOWN }
+
+    private static final SysfsNode<Boolean> sEnableNode =
+            new SysfsNode<>(CAMERA_MOTOR_ENABLE_PATH, NodeCodecs.bool("1"));
+    private static final SysfsNode<int[]> sCalibrationNode =
+            new SysfsNode<>(CAMERA_MOTOR_HALL_CALIBRATION, NodeCodecs.CSV_INT);
+    private static final SysfsNode<Direction> sDirectionNode = new SysfsNode<>(
+            CAMERA_MOTOR_DIRECTION_PATH, NodeCodecs.enumOf(Direction.values(), "0", "1"));
+    private static final SysfsNode<Position> sPositionNode = new SysfsNode<>(
+            CAMERA_MOTOR_POSITION_PATH, NodeCodecs.enumOf(Position.values(), "0", "1"));
 
     private CameraMotorController() {
         // This class is not supposed to be instantiated
     }
 
     public static void calibrate() {
-        String calibrationData = HALL_CALIBRATION_DEFAULT;
+        int[] calibration = null;
 
         try {
-            calibrationData = FileUtils.readTextFile(
-                    new File(CAMERA_PERSIST_HALL_CALIBRATION), 0, null);
+            calibration = parseCalibration(FileUtils.readTextFile(
+                    new File(CAMERA_PERSIST_HALL_CALIBRATION), 0, null));
+            if (calibration == null) {
+                Log.e(TAG, "Malformed " + CAMERA_PERSIST_HALL_CALIBRATION);
+            }
         } catch (IOException e) {
             Log.e(TAG, "Failed to read " + CAMERA_PERSIST_HALL_CALIBRATION, e);
         }
+        if (calibration == null) {
+            calibration = parseCalibration(HALL_CALIBRATION_DEFAULT);
+        }
 
-        try {
-            FileUtils.stringToFile(CAMERA_MOTOR_HALL_CALIBRATION, calibrationData);
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_HALL_CALIBRATION, e);
+        // the motor driver resets on its own, never skip calibrating
+        if (!sCalibrationNode.write(calibration, true)) {
+            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_HALL_CALIBRATION);
         }
     }
 
-    public static void setMotorDirection(String direction) {
-        try {
-            FileUtils.stringToFile(CAMERA_MOTOR_DIRECTION_PATH, direction);
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_DIRECTION_PATH, e);
+    public static void setMotorDirection(Direction direction) {
+        if (!sDirectionNode.write(direction, true)) {
+            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_DIRECTION_PATH);
         }
     }
 
     public static void setMotorEnabled() {
-        try {
-            FileUtils.stringToFile(CAMERA_MOTOR_ENABLE_PATH, ENABLED);
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_ENABLE_PATH, e);
+        if (!sEnableNode.write(true, true)) {
+            Log.e(TAG, "Failed to write to " + CAMERA_MOTOR_ENABLE_PATH);
         }
     }
 
-    public static String getMotorPosition() {
-        try {
-            return FileUtils.readTextFile(new File(CAMERA_MOTOR_POSITION_PATH), 1, null);
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to read " + CAMERA_MOTOR_POSITION_PATH, e);
+    public static Position getMotorPosition() {
+        final Position position = sPositionNode.read(null);
+        if (position == null) {
+            Log.e(TAG, "Failed to read " + CAMERA_MOTOR_POSITION_PATH);
         }
-        return null;
+        return position;
+    }
+
+    private static int[] parseCalibration(String data) {
+        final byte[] bytes = data.trim().getBytes(StandardCharsets.UTF_8);
+        return NodeCodecs.CSV_INT.decode(bytes, bytes.length);
     }
 }
@@ -32,6 +32,11 @@ import android.util.Log;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.yaap.device.DeviceSettings.Sysfs.SysfsStats;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class CameraMotorService extends Service implements Handler.Callback {
     private static final boolean DEBUG = true;
     private static final String TAG = "CameraMotorService";
@@ -114,6 +119,11 @@ public class CameraMotorService extends Service implements Handler.Callback {
         return null;
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SysfsStats.dump(pw);
+    }
+
     @Override
     public boolean handleMessage(Message msg) {
         switch (msg.what) {
@@ -163,14 +173,14 @@ public class CameraMotorService extends Service implements Handler.Callback {
 
     private void raiseCamera() {
         if (DEBUG) Log.d(TAG, "Raising camera");
-        CameraMotorController.setMotorDirection(CameraMotorController.DIRECTION_UP);
+        CameraMotorController.setMotorDirection(CameraMotorController.Direction.UP);
         CameraMotorController.setMotorEnabled();
     }
 
     private void lowerCamera() {
         if (DEBUG) Log.d(TAG, "Lowering camera");
         if (mAlertDialog != null && mAlertDialog.isShowing()) mAlertDialog.dismiss();
-        CameraMotorController.setMotorDirection(CameraMotorController.DIRECTION_DOWN);
+        CameraMotorController.setMotorDirection(CameraMotorController.Direction.DOWN);
         CameraMotorController.setMotorEnabled();
     }
 }
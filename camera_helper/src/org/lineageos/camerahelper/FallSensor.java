@@ -65,12 +65,12 @@ public class FallSensor implements SensorEventListener {
         Log.d(TAG, "Fall detected, ensuring front camera is closed");
 
         // We shouldn't really bother doing anything if motor is already closed
-        if (CameraMotorController.getMotorPosition().equals(CameraMotorController.POSITION_DOWN)) {
+        if (CameraMotorController.getMotorPosition() == CameraMotorController.Position.DOWN) {
             return;
         }
 
         // Close the camera
-        CameraMotorController.setMotorDirection(CameraMotorController.DIRECTION_DOWN);
+        CameraMotorController.setMotorDirection(CameraMotorController.Direction.DOWN);
         CameraMotorController.setMotorEnabled();
 
         // Show alert dialog informing user that we closed the camera
@@ -80,7 +80,7 @@ public class FallSensor implements SensorEventListener {
                     .setMessage(R.string.free_fall_detected_message)
                     .setNegativeButton(R.string.raise_the_camera, (dialog, which) -> {
                         // Reopen the camera
-                        CameraMotorController.setMotorDirection(CameraMotorController.DIRECTION_UP);
+                        CameraMotorController.setMotorDirection(CameraMotorController.Direction.UP);
                         CameraMotorController.setMotorEnabled();
                     })
                     .setPositiveButton(R.string.close, (dialog, which) -> {
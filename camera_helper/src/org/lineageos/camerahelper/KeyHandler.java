@@ -98,7 +98,7 @@ public class KeyHandler implements DeviceKeyHandler {
                         .setPositiveButton(R.string.retry, (dialog, which) -> {
                             // Close the camera
                             CameraMotorController.setMotorDirection(
-                                    CameraMotorController.DIRECTION_DOWN);
+                                    CameraMotorController.Direction.DOWN);
                             CameraMotorController.setMotorEnabled();
                         })
                         .create();
@@ -120,13 +120,13 @@ public class KeyHandler implements DeviceKeyHandler {
                         .setNegativeButton(R.string.retry, (dialog, which) -> {
                             // Reopen the camera
                             CameraMotorController.setMotorDirection(
-                                    CameraMotorController.DIRECTION_UP);
+                                    CameraMotorController.Direction.UP);
                             CameraMotorController.setMotorEnabled();
                         })
                         .setPositiveButton(R.string.close, (dialog, which) -> {
                             // Close the camera
                             CameraMotorController.setMotorDirection(
-                                    CameraMotorController.DIRECTION_DOWN);
+                                    CameraMotorController.Direction.DOWN);
                             CameraMotorController.setMotorEnabled();
 
                             // Go back to home screen